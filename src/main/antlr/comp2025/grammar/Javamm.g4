@@ -97,11 +97,11 @@ expr
     : '(' expr ')' #ParenthesisExpr //feito
     | value = '!' expr #Negation //feito
     | expr '[' expr ']' #ArrayAccessExpr //feito
+    | expr '.length' #Length //feito
     | expr op= ('*' | '/') expr #BinaryExpr //feito
     | expr op= ('+'| '-') expr #BinaryExpr //feito
     | expr op=('<' | '>') expr #BinaryExpr //feito
     | expr op= ('&&' | '||') expr #BinaryExpr //feito
-    | expr '.length' #Length //feito
     | value=INTEGER #IntegerLiteral //feito
     | name=ID #VarRefExpr //feito
     | method=ID '(' (expr (',' expr)*)? ')' #ClassMethodCallExpr
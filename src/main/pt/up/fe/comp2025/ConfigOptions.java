@@ -11,6 +11,9 @@ public class ConfigOptions {
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
     private static final String EXTRA = "extra";
+    private static final String PARALLEL_ANALYSIS = "parallelAnalysis";
+    private static final String COMPACT_AST = "compactAst";
+    private static final String DFA_CACHE_LIMIT = "dfaCacheLimit";
 
     // These methods should be on CompilerConfig, but to avoid rewriting a file
     // that is in the src folder, this new class was added
@@ -31,6 +34,18 @@ public class ConfigOptions {
         return EXTRA;
     }
 
+    public static String getParallelAnalysis() {
+        return PARALLEL_ANALYSIS;
+    }
+
+    public static String getCompactAst() {
+        return COMPACT_AST;
+    }
+
+    public static String getDfaCacheLimit() {
+        return DFA_CACHE_LIMIT;
+    }
+
     public static Optional<File> getInputFile(Map<String, String> config) {
         var inputFile = config.get(INPUT_FILE);
 
@@ -54,4 +69,16 @@ public class ConfigOptions {
     public static boolean getExtra(Map<String, String> config) {
         return Boolean.parseBoolean(config.getOrDefault(EXTRA, "false"));
     }
+
+    public static boolean getParallelAnalysis(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(PARALLEL_ANALYSIS, "false"));
+    }
+
+    public static boolean getCompactAst(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(COMPACT_AST, "false"));
+    }
+
+    public static int getDfaCacheLimit(Map<String, String> config) {
+        return Integer.parseInt(config.getOrDefault(DFA_CACHE_LIMIT, "-1"));
+    }
 }
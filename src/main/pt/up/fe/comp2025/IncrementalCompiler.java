@@ -0,0 +1,387 @@
+package pt.up.fe.comp2025;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2025.analysis.AnalysisDriver.PassResult;
+import pt.up.fe.comp2025.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.backend.JasminBackendImpl;
+import pt.up.fe.comp2025.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.specs.util.SpecsCheck;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles successive versions of the same source, as sent by an editor on each change.
+ * <p>
+ * When an edit falls inside the body of a single method, only that MethodDecl is reparsed (with the 'methodDecl'
+ * rule) and patched into the previous AST, and only that method is analysed and generated again. Edits outside
+ * methods, changes to a method signature or anything the patch cannot handle rebuild everything from the new source.
+ */
+public class IncrementalCompiler {
+
+    private static final String METHOD_DECL_RULE = "methodDecl";
+
+    private final Map<String, String> config;
+
+    private final JmmParserImpl parser;
+    private final JmmAnalysisImpl analysis;
+    private final JmmOptimizationImpl optimization;
+    private final JasminBackendImpl backend;
+
+    private String source;
+    private int[] lineStarts;
+    private JmmParserResult parserResult;
+    private JmmSemanticsResult semanticsResult;
+    private boolean incremental;
+
+    // Analysis results of each partition of the AST, null while the symbol table has errors
+    private List<PassResult> classResults;
+    private final Map<JmmNode, List<PassResult>> methodResults;
+
+    // Generated code of each method, see JmmOptimizationImpl and JasminBackendImpl
+    private final Map<JmmNode, String> ollirMethodCache;
+    private final Map<String, String> jasminMethodCache;
+
+    public IncrementalCompiler(Map<String, String> config) {
+        this.config = config;
+        this.parser = new JmmParserImpl();
+        this.analysis = new JmmAnalysisImpl();
+        this.optimization = new JmmOptimizationImpl();
+        this.backend = new JasminBackendImpl();
+        this.methodResults = new HashMap<>();
+        this.ollirMethodCache = new HashMap<>();
+        this.jasminMethodCache = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Compiles a new version of the source up to the semantic analysis.
+     *
+     * @return the reports of the parser and of the analysis, as a full compilation would produce them
+     */
+    public List<Report> update(String code) {
+        incremental = source != null && (code.equals(source) || patch(code));
+
+        if (!incremental) {
+            rebuild(code);
+        }
+
+        source = code;
+        lineStarts = getLineStarts(code);
+
+        return semanticsResult != null ? semanticsResult.getReports() : parserResult.getReports();
+    }
+
+    /**
+     * @return true if the last update only compiled the changed method again
+     */
+    public boolean wasIncremental() {
+        return incremental;
+    }
+
+    public JmmSemanticsResult getSemanticsResult() {
+        return semanticsResult;
+    }
+
+    /**
+     * Generates the OLLIR code of the current source, which must have no errors.
+     * AST optimizations rewrite the tree that the next update patches, so with 'optimize' the whole pipeline runs
+     * on a separate AST.
+     */
+    public OllirResult toOllir() {
+        SpecsCheck.checkArgument(semanticsResult != null && !hasErrors(semanticsResult.getReports()),
+                () -> "Expected a source without errors");
+
+        if (ConfigOptions.getOptimize(config)) {
+            var semantics = analysis.semanticAnalysis(parser.parse(source, config));
+            return optimization.optimize(optimization.toOllir(optimization.optimize(semantics)));
+        }
+
+        return optimization.optimize(optimization.toOllir(semanticsResult, ollirMethodCache));
+    }
+
+    /**
+     * Generates the Jasmin code of the current source, which must have no errors.
+     */
+    public JasminResult toJasmin() {
+        var ollirResult = toOllir();
+
+        if (ConfigOptions.getOptimize(config)) {
+            return backend.toJasmin(ollirResult);
+        }
+
+        return backend.toJasmin(ollirResult, jasminMethodCache);
+    }
+
+    private void rebuild(String code) {
+        classResults = null;
+        methodResults.clear();
+        ollirMethodCache.clear();
+        jasminMethodCache.clear();
+        semanticsResult = null;
+
+        parserResult = parser.parse(code, config);
+        if (parserResult.getRootNode() == null || hasErrors(parserResult.getReports())) {
+            return;
+        }
+
+        var tableResult = analysis.buildSymbolTable(parserResult);
+        semanticsResult = analyze(tableResult);
+    }
+
+    /**
+     * Applies the change from the previous source to the given one by reparsing a single method.
+     *
+     * @return false if the change cannot be handled incrementally; the AST may have been modified by then
+     */
+    private boolean patch(String code) {
+        if (semanticsResult == null || classResults == null) {
+            return false;
+        }
+
+        // Region that changed, as [changeStart, oldChangeEnd) in the previous source
+        int maxPrefix = Math.min(source.length(), code.length());
+        int changeStart = 0;
+        while (changeStart < maxPrefix && source.charAt(changeStart) == code.charAt(changeStart)) {
+            changeStart++;
+        }
+        int suffix = 0;
+        while (suffix < maxPrefix - changeStart
+                && source.charAt(source.length() - 1 - suffix) == code.charAt(code.length() - 1 - suffix)) {
+            suffix++;
+        }
+        int oldChangeEnd = source.length() - suffix;
+
+        var root = semanticsResult.getRootNode();
+        var classDecl = root.getChildren(Kind.CLASS_DECL).getFirst();
+
+        JmmNode oldMethod = null;
+        for (var method : classDecl.getChildren(Kind.METHOD_DECL)) {
+            if (getStartOffset(method, lineStarts) <= changeStart && oldChangeEnd <= getEndOffset(method, lineStarts)) {
+                oldMethod = method;
+                break;
+            }
+        }
+        if (oldMethod == null) {
+            return false;
+        }
+
+        // Reparse the new text of the method, which must be a single MethodDecl
+        int methodStart = getStartOffset(oldMethod, lineStarts);
+        int methodEnd = getEndOffset(oldMethod, lineStarts) + code.length() - source.length();
+        var methodCode = code.substring(methodStart, methodEnd);
+
+        var methodResult = parser.parse(methodCode, METHOD_DECL_RULE, config);
+        var newMethod = methodResult.getRootNode();
+        if (newMethod == null || hasErrors(methodResult.getReports()) || !Kind.METHOD_DECL.check(newMethod)
+                || getEndOffset(newMethod, getLineStarts(methodCode)) != methodCode.length()) {
+            return false;
+        }
+
+        // Move the positions of the new method to the source, and those after the method by the change in its size
+        int startLine = oldMethod.getLine();
+        int startColumn = oldMethod.getColumn();
+        newMethod.getDescendantsAndSelfStream().forEach(node -> {
+            movePosition(node, NodePosition.LINE_START, NodePosition.COL_START, startLine, startColumn);
+            movePosition(node, NodePosition.LINE_END, NodePosition.COL_END, startLine, startColumn);
+        });
+
+        var shift = new PositionShift(
+                oldMethod.getInteger(NodePosition.LINE_END.getKey(), -1),
+                oldMethod.getInteger(NodePosition.COL_END.getKey(), -1),
+                newMethod.getInteger(NodePosition.LINE_END.getKey(), -1),
+                newMethod.getInteger(NodePosition.COL_END.getKey(), -1));
+        shiftPositions(root, oldMethod, shift);
+
+        classDecl.setChild(newMethod, oldMethod.getIndexOfSelf());
+
+        var symbolTableBuilder = new JmmSymbolTableBuilder();
+        var table = symbolTableBuilder.build(root);
+        if (!sameSignature(oldMethod, newMethod, (JmmSymbolTable) semanticsResult.getSymbolTable(), table)) {
+            return false;
+        }
+
+        // Everything else is still valid, except for the positions in the reports after the method
+        methodResults.remove(oldMethod);
+        methodResults.replaceAll((method, results) -> shiftReports(results, shift));
+        classResults = shiftReports(classResults, shift);
+        ollirMethodCache.remove(oldMethod);
+        jasminMethodCache.remove(oldMethod.get("name"));
+
+        // Only the new method is typed now, the types of the other nodes are computed when first queried
+        table.getTypeAttribution().attribute(newMethod, table);
+
+        parserResult = new JmmParserResult(root, List.of(), config);
+        var tableResult = new JmmSemanticsResult(parserResult, table, symbolTableBuilder.getReports());
+        semanticsResult = analyze(tableResult);
+
+        return true;
+    }
+
+    /**
+     * Runs the analysis passes on the partitions of the AST that have no cached results.
+     */
+    private JmmSemanticsResult analyze(JmmSemanticsResult tableResult) {
+        // As in JmmAnalysis.semanticAnalysis, there is no analysis if the symbol table has errors
+        if (hasErrors(tableResult.getReports())) {
+            classResults = null;
+            return tableResult;
+        }
+
+        var root = tableResult.getRootNode();
+        var table = tableResult.getSymbolTable();
+
+        if (classResults == null) {
+            classResults = analysis.analyzeOutsideMethods(root, table);
+        }
+
+        List<List<PassResult>> partitionResults = new ArrayList<>();
+        partitionResults.add(classResults);
+        for (var method : root.getDescendants(Kind.METHOD_DECL)) {
+            partitionResults.add(methodResults.computeIfAbsent(method, m -> analysis.analyzeMethod(m, table)));
+        }
+
+        return new JmmSemanticsResult(tableResult, analysis.mergeReports(partitionResults));
+    }
+
+    private static boolean sameSignature(JmmNode oldMethod, JmmNode newMethod, JmmSymbolTable oldTable,
+                                         JmmSymbolTable newTable) {
+        var name = oldMethod.get("name");
+
+        return name.equals(newMethod.get("name"))
+                && oldMethod.hasAttribute("isStatic") == newMethod.hasAttribute("isStatic")
+                && oldMethod.getBoolean("isPublic", false) == newMethod.getBoolean("isPublic", false)
+                && oldTable.getMethods().equals(newTable.getMethods())
+                && oldTable.getReturnType(name).equals(newTable.getReturnType(name))
+                && oldTable.getParameters(name).equals(newTable.getParameters(name));
+    }
+
+    /**
+     * Change of the positions after the end of a method whose last token moved from (oldLine, oldColumn) to
+     * (newLine, newColumn). Columns only change on the line where the method ends.
+     */
+    private record PositionShift(int oldLine, int oldColumn, int newLine, int newColumn) {
+
+        boolean isAfter(int line, int column) {
+            return line > oldLine || (line == oldLine && column > oldColumn);
+        }
+
+        int line(int line) {
+            return line + newLine - oldLine;
+        }
+
+        int column(int line, int column) {
+            return line == oldLine ? column + newColumn - oldColumn : column;
+        }
+    }
+
+    private static void shiftPositions(JmmNode node, JmmNode skip, PositionShift shift) {
+        if (node == skip) {
+            return;
+        }
+
+        shiftPosition(node, NodePosition.LINE_START, NodePosition.COL_START, shift);
+        shiftPosition(node, NodePosition.LINE_END, NodePosition.COL_END, shift);
+
+        for (var child : node.getChildren()) {
+            shiftPositions(child, skip, shift);
+        }
+    }
+
+    private static void shiftPosition(JmmNode node, NodePosition linePosition, NodePosition columnPosition,
+                                      PositionShift shift) {
+        int line = node.getInteger(linePosition.getKey(), -1);
+        int column = node.getInteger(columnPosition.getKey(), -1);
+        if (!shift.isAfter(line, column)) {
+            return;
+        }
+
+        node.put(linePosition.getKey(), Integer.toString(shift.line(line)));
+        node.put(columnPosition.getKey(), Integer.toString(shift.column(line, column)));
+    }
+
+    private static List<PassResult> shiftReports(List<PassResult> results, PositionShift shift) {
+        var shifted = new ArrayList<PassResult>(results.size());
+        for (var result : results) {
+            var reports = new ArrayList<Report>(result.reports().size());
+            for (var report : result.reports()) {
+                reports.add(shiftReport(report, shift));
+            }
+            shifted.add(new PassResult(result.pass(), reports, result.exception()));
+        }
+        return shifted;
+    }
+
+    private static Report shiftReport(Report report, PositionShift shift) {
+        int line = report.getLine();
+        int column = report.getColumn();
+        if (!shift.isAfter(line, column)) {
+            return report;
+        }
+
+        var shifted = new Report(report.getType(), report.getStage(), shift.line(line), shift.column(line, column),
+                report.getMessage());
+        report.getException().ifPresent(shifted::setException);
+        return shifted;
+    }
+
+    /**
+     * Positions of a node parsed on its own start at line 1, column 0.
+     */
+    private static void movePosition(JmmNode node, NodePosition linePosition, NodePosition columnPosition,
+                                     int startLine, int startColumn) {
+        int line = node.getInteger(linePosition.getKey(), -1);
+        int column = node.getInteger(columnPosition.getKey(), -1);
+
+        node.put(linePosition.getKey(), Integer.toString(line + startLine - 1));
+        node.put(columnPosition.getKey(), Integer.toString(line == 1 ? column + startColumn : column));
+    }
+
+    private static int[] getLineStarts(String code) {
+        int lines = 1;
+        for (int i = 0; i < code.length(); i++) {
+            if (code.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+
+        var lineStarts = new int[lines];
+        int line = 1;
+        for (int i = 0; i < code.length(); i++) {
+            if (code.charAt(i) == '\n') {
+                lineStarts[line++] = i + 1;
+            }
+        }
+        return lineStarts;
+    }
+
+    private static int getStartOffset(JmmNode node, int[] lineStarts) {
+        return lineStarts[node.getLine() - 1] + node.getColumn();
+    }
+
+    /**
+     * Offset after the last token of a MethodDecl, which is always the closing '}'.
+     */
+    private static int getEndOffset(JmmNode method, int[] lineStarts) {
+        int line = method.getInteger(NodePosition.LINE_END.getKey(), -1);
+        int column = method.getInteger(NodePosition.COL_END.getKey(), -1);
+        return lineStarts[line - 1] + column + 1;
+    }
+
+    private static boolean hasErrors(List<Report> reports) {
+        return reports.stream().anyMatch(report -> report.getType() == ReportType.ERROR);
+    }
+}
@@ -25,11 +25,10 @@ public class Launcher {
         if (!inputFile.isFile()) {
             throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
         }
-        String code = SpecsIo.read(inputFile);
 
-        // Parsing stage
+        // Parsing stage, the file is memory-mapped instead of read into a String
         JmmParserImpl parser = new JmmParserImpl();
-        JmmParserResult parserResult = parser.parse(code, config);
+        JmmParserResult parserResult = parser.parseFile(inputFile, config);
         TestUtils.noErrors(parserResult.getReports());
 
         // Print AST
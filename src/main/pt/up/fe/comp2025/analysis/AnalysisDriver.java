@@ -0,0 +1,102 @@
+package pt.up.fe.comp2025.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2025.ast.Kind;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs several analysis passes in a single preorder traversal of the AST.
+ * <p>
+ * Each node is dispatched to every pass that registered a visit for its kind, in the order of the passes.
+ * Passes keep their own reports, and a pass that throws is not visited again.
+ */
+public class AnalysisDriver {
+
+    /**
+     * Outcome of one pass: its reports, or the exception that stopped it.
+     */
+    public record PassResult(AnalysisVisitor pass, List<Report> reports, Exception exception) {
+    }
+
+    private final List<AnalysisVisitor> passes;
+    private final Exception[] exceptions;
+
+    // Passes interested in each node kind, filled as kinds are found
+    private final Map<String, List<Integer>> interestedPasses;
+
+    public AnalysisDriver(List<AnalysisVisitor> passes) {
+        this.passes = passes;
+        this.exceptions = new Exception[passes.size()];
+        this.interestedPasses = new HashMap<>();
+    }
+
+    /**
+     * Visits the whole subtree of the given node.
+     */
+    public List<PassResult> analyze(JmmNode root, SymbolTable table) {
+        visit(root, table, false);
+
+        return getResults();
+    }
+
+    /**
+     * Visits the subtree of the given node, skipping method declarations.
+     * Together with {@link #analyze} on each MethodDecl, this covers the same nodes as a visit of the whole AST.
+     */
+    public List<PassResult> analyzeOutsideMethods(JmmNode root, SymbolTable table) {
+        visit(root, table, true);
+
+        return getResults();
+    }
+
+    private void visit(JmmNode node, SymbolTable table, boolean skipMethods) {
+        if (skipMethods && Kind.METHOD_DECL.check(node)) {
+            return;
+        }
+
+        for (int passIndex : getInterestedPasses(node)) {
+            if (exceptions[passIndex] != null) {
+                continue;
+            }
+
+            try {
+                passes.get(passIndex).visitNode(node, table);
+            } catch (Exception e) {
+                exceptions[passIndex] = e;
+            }
+        }
+
+        for (var child : node.getChildren()) {
+            visit(child, table, skipMethods);
+        }
+    }
+
+    private List<Integer> getInterestedPasses(JmmNode node) {
+        return interestedPasses.computeIfAbsent(node.getKind(), kind -> {
+            var interested = new ArrayList<Integer>();
+            for (int i = 0; i < passes.size(); i++) {
+                if (passes.get(i).handles(node)) {
+                    interested.add(i);
+                }
+            }
+            return interested;
+        });
+    }
+
+    private List<PassResult> getResults() {
+        var results = new ArrayList<PassResult>();
+        for (int i = 0; i < passes.size(); i++) {
+            var pass = passes.get(i);
+            results.add(exceptions[i] == null ?
+                    new PassResult(pass, pass.getReports(), null) :
+                    new PassResult(pass, List.of(), exceptions[i]));
+        }
+        return results;
+    }
+}
@@ -6,9 +6,13 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
 
 /**
  * Implementation of AnalysisPass that automatically visits nodes using preorder traversal.
@@ -17,6 +21,9 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
 
     private List<Report> reports;
 
+    // Kinds with a registered visit, used by AnalysisDriver to dispatch nodes
+    private Set<String> handledKinds;
+
     public AnalysisVisitor() {
         reports = new ArrayList<>();
         setDefaultValue(() -> null);
@@ -40,6 +47,31 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
         return getReports();
     }
 
+    @Override
+    public void addVisit(String kind, BiFunction<JmmNode, SymbolTable, Void> method) {
+        // Called from buildVisitor(), during the construction of the superclass
+        if (handledKinds == null) {
+            handledKinds = new HashSet<>();
+        }
+        handledKinds.add(kind);
+
+        super.addVisit(kind, method);
+    }
+
+    /**
+     * @return true if this pass registered a visit for the kind of the node, or for one of its super kinds
+     */
+    public boolean handles(JmmNode node) {
+        return handledKinds != null && node.getHierarchy().stream().anyMatch(handledKinds::contains);
+    }
+
+    /**
+     * Applies the visit of this pass to the given node only, without visiting its children.
+     */
+    public void visitNode(JmmNode node, SymbolTable table) {
+        getVisit(node).apply(node, table);
+    }
+
     public Report newError(JmmNode node, String message) {
         return Report.newError(
                 Stage.SEMANTIC,
@@ -51,23 +83,6 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
 
 
     public Boolean hasImport(SymbolTable table, String importName) {
-        for (var importStmt : table.getImports()) {
-            if (importStmt.equals(importName)) {
-                return true;
-            }
-
-            if (importStmt.endsWith("." + importName)) {
-                return true;
-            }
-
-            int lastDotIndex = importStmt.lastIndexOf('.');
-            if (lastDotIndex != -1) {
-                String simpleName = importStmt.substring(lastDotIndex + 1);
-                if (simpleName.equals(importName)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return ((JmmSymbolTable) table).getImportIndex().contains(importName);
     }
 }
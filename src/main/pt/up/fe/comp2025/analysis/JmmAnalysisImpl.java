@@ -9,12 +9,17 @@ import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.analysis.AnalysisDriver.PassResult;
 import pt.up.fe.comp2025.analysis.passes.*;
 import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
 import pt.up.fe.comp2025.symboltable.JmmSymbolTableBuilder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Implementation of the semantic analysis stage.
@@ -37,7 +42,10 @@ public class JmmAnalysisImpl implements JmmAnalysis {
         JmmNode rootNode = parserResult.getRootNode();
 
         var symbolTableBuilder = new JmmSymbolTableBuilder();
-        SymbolTable table = symbolTableBuilder.build(rootNode);
+        JmmSymbolTable table = symbolTableBuilder.build(rootNode);
+
+        // Types every expression once, so the passes and the OLLIR generation only look them up
+        table.getTypeAttribution().attribute(rootNode, table);
 
         List<Report> reports = symbolTableBuilder.getReports();
 
@@ -49,44 +57,100 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
         var table = semanticsResult.getSymbolTable();
 
-        var analysisVisitors = buildPasses(table);
-
         var rootNode = semanticsResult.getRootNode();
 
-        var reports = new ArrayList<Report>();
+        // All passes are applied in a single traversal of the AST, see AnalysisDriver
+        List<List<PassResult>> partitionResults;
+        if (ConfigOptions.getParallelAnalysis(semanticsResult.getConfig())) {
+            partitionResults = parallelAnalysis(rootNode, table);
+        } else {
+            partitionResults = List.of(new AnalysisDriver(buildPasses(table)).analyze(rootNode, table));
+        }
 
-        // This is a simple implementation that assumes all passes are implemented as visitors, each one making a full visit of the AST.
-        // There are other implementations that reduce the number of full AST visits, this is not required for the work, but a nice challenge if you want to try.
-        for (var analysisVisitor : analysisVisitors) {
-            try {
-                var passReports = analysisVisitor.analyze(rootNode, table);
+        return new JmmSemanticsResult(semanticsResult, mergeReports(partitionResults));
+    }
 
-                var hasSymbolTableErrors = passReports.stream()
-                        .anyMatch(report -> report.getType() == ReportType.ERROR);
+    /**
+     * Analyses the nodes outside method declarations.
+     */
+    public List<PassResult> analyzeOutsideMethods(JmmNode rootNode, SymbolTable table) {
+        return new AnalysisDriver(buildPasses(table)).analyzeOutsideMethods(rootNode, table);
+    }
 
-                reports.addAll(passReports);
+    /**
+     * Analyses a single method declaration.
+     */
+    public List<PassResult> analyzeMethod(JmmNode methodDecl, SymbolTable table) {
+        return new AnalysisDriver(buildPasses(table)).analyze(methodDecl, table);
+    }
 
-                // Return early in case of error report
-                if (hasSymbolTableErrors) {
-                    System.out.println("Found errors: " + reports);
-                    return new JmmSemanticsResult(semanticsResult, reports);
+    /**
+     * Merges the results of the partitions of the AST pass by pass, as if each pass made its own full visit of the AST.
+     *
+     * @param partitionResults the results of each partition, in source order
+     */
+    public List<Report> mergeReports(List<List<PassResult>> partitionResults) {
+        var reports = new ArrayList<Report>();
+
+        int numPasses = partitionResults.get(0).size();
+        for (int i = 0; i < numPasses; i++) {
+            var passReports = new ArrayList<Report>();
+            PassResult failed = null;
+
+            for (var partitionResult : partitionResults) {
+                var passResult = partitionResult.get(i);
+                if (passResult.exception() != null) {
+                    failed = passResult;
+                    break;
                 }
+                passReports.addAll(passResult.reports());
+            }
 
-            } catch (Exception e) {
+            if (failed != null) {
                 reports.add(Report.newError(Stage.SEMANTIC,
                         -1,
                         -1,
-                        "Problem while executing analysis pass '" + analysisVisitor.getClass() + "'",
-                        e)
+                        "Problem while executing analysis pass '" + failed.pass().getClass() + "'",
+                        failed.exception())
                 );
                 System.out.println("Exception: " + reports);
+                continue;
             }
 
-        }
+            var hasSymbolTableErrors = passReports.stream()
+                    .anyMatch(report -> report.getType() == ReportType.ERROR);
 
+            reports.addAll(passReports);
+
+            // Return early in case of error report
+            if (hasSymbolTableErrors) {
+                System.out.println("Found errors: " + reports);
+                return reports;
+            }
+        }
 
-        return new JmmSemanticsResult(semanticsResult, reports);
+        return reports;
     }
 
+    /**
+     * Partitions the AST into the nodes outside methods and one subtree per MethodDecl, and analyses each partition
+     * concurrently. Passes keep per-method state, so each partition gets its own pass instances.
+     *
+     * @return the results of each partition, in source order
+     */
+    private List<List<PassResult>> parallelAnalysis(JmmNode rootNode, SymbolTable table) {
+        List<ForkJoinTask<List<PassResult>>> partitionTasks = new ArrayList<>();
 
+        partitionTasks.add(ForkJoinTask.adapt(() -> analyzeOutsideMethods(rootNode, table)));
+        for (var methodDecl : rootNode.getDescendants(Kind.METHOD_DECL)) {
+            partitionTasks.add(ForkJoinTask.adapt(() -> analyzeMethod(methodDecl, table)));
+        }
+        partitionTasks.forEach(ForkJoinPool.commonPool()::execute);
+
+        List<List<PassResult>> partitionResults = new ArrayList<>();
+        for (var partitionTask : partitionTasks) {
+            partitionResults.add(partitionTask.join());
+        }
+        return partitionResults;
+    }
 }
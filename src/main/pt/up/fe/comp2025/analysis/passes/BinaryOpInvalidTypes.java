@@ -8,6 +8,7 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2025.analysis.AnalysisVisitor;
 import pt.up.fe.comp2025.ast.Kind;
 import pt.up.fe.comp2025.ast.TypeUtils;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
 import pt.up.fe.specs.util.SpecsCheck;
 
 import java.util.HashSet;
@@ -40,19 +41,13 @@ public class BinaryOpInvalidTypes extends AnalysisVisitor {
         // Check if exists a parameter or variable declaration with the same name as the variable reference
         var varRefName = varRefExpr.get("name");
 
-        // Var is a parameter, return
-        if (table.getParameters(currentMethod).stream()
-                .anyMatch(param -> param.getName().equals(varRefName))) {
-            return null;
-        }
+        var symbol = ((JmmSymbolTable) table).resolve(currentMethod, varRefName);
 
-        // Var is a declared variable, return
-        if (table.getLocalVariables(currentMethod).stream()
-                .anyMatch(varDecl -> varDecl.getName().equals(varRefName))) {
+        // Var is a parameter or a declared variable, return
+        if (symbol.isPresent() && !symbol.get().isField()) {
             return null;
         }
-        if (table.getFields().stream()
-                .anyMatch(varDecl -> varDecl.getName().equals(varRefName))) {
+        if (symbol.isPresent()) {
             if (isStatic){
                 var message = "A static method cannot access field variables";
                 addReport(Report.newError(
@@ -104,7 +99,7 @@ public class BinaryOpInvalidTypes extends AnalysisVisitor {
 
             // Check parameters
             List<JmmNode> params = method.getChildren().stream()
-                    .filter(c -> c.getKind().equals("Param"))
+                    .filter(Kind.PARAM::check)
                     .toList();
 
             if (params.size() != 1) {
@@ -117,8 +112,7 @@ public class BinaryOpInvalidTypes extends AnalysisVisitor {
                 );
             } else {
                 JmmNode param = params.get(0);
-                String paramKind = param.getChildren().get(0).getKind();
-                if (!"StringArray".equals(paramKind) | !param.get("name").equals("args")) {
+                if (!Kind.STRING_ARRAY.check(param.getChildren().get(0)) | !param.get("name").equals("args")) {
                     addReport(Report.newError(
                             Stage.SEMANTIC,
                             param.getLine(),
@@ -136,8 +130,8 @@ public class BinaryOpInvalidTypes extends AnalysisVisitor {
 
         if (table.getParameters(currentMethod) != null) {
             for (var param : method.getChildren()) {
-                if (param.getKind().equals("Param")) {
-                    if (param.getChildren().getFirst().getKind().equals("Varargs")) {
+                if (Kind.PARAM.check(param)) {
+                    if (Kind.VARARGS.check(param.getChildren().getFirst())) {
                         counter++;
                         isLast = true;
                     } else {
@@ -158,7 +152,7 @@ public class BinaryOpInvalidTypes extends AnalysisVisitor {
         }
         //Vê o tipo do metodo
         var type = method.getChild(0);
-        if (type.getKind().equals("Id")) {
+        if (Kind.ID.check(type)) {
             var name = type.get("name");
             if (!hasImport(table, name) && !table.getClassName().equals(name) && !name.equals("void")) {
                 var message = String.format("Method of type %s does not exist.", name);
@@ -175,7 +169,7 @@ public class BinaryOpInvalidTypes extends AnalysisVisitor {
         //Check se team declarações repetidas
         Set<String> seenVarDecls = new HashSet<>();
         for (var varDecl: method.getChildren()) {
-            if (varDecl.getKind().equals("VarDecl")) {
+            if (Kind.VAR_DECL.check(varDecl)) {
                 if (!seenVarDecls.add(varDecl.get("name"))) {
                     var message = String.format("The variable %s is already declared", varDecl.get("name"));
                     addReport(Report.newError(
@@ -340,7 +334,7 @@ public class BinaryOpInvalidTypes extends AnalysisVisitor {
                 }
             }
         }
-        else if (methodNode.getChildren().getFirst().getKind().equals("ObjectCallExpr")) {
+        else if (Kind.OBJECT_CALL_EXPR.check(methodNode.getChildren().getFirst())) {
             if (isStatic) {
                 var message = "Cannot use this inside a static method";
                 addReport(Report.newError(
@@ -377,9 +371,8 @@ public class BinaryOpInvalidTypes extends AnalysisVisitor {
 
 
     private Void visitType(JmmNode typeNode, SymbolTable table) {
-        if (typeNode.getKind().equals("Varargs")) {
-            var a = typeNode.getParent().getKind();
-            if (!a.equals("Param")) {
+        if (Kind.VARARGS.check(typeNode)) {
+            if (!Kind.PARAM.check(typeNode.getParent())) {
                 var message = "Varargs should be a parameter.";
                 addReport(Report.newError(
                         Stage.SEMANTIC,
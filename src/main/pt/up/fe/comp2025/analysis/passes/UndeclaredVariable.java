@@ -63,7 +63,7 @@ public class UndeclaredVariable extends AnalysisVisitor {
             );
         }
         if (!table.getReturnType(method.get("name")).getName().equals("void")) {
-            if (!method.getChildren().getLast().getKind().equals("ReturnStmt")) {
+            if (!Kind.RETURN_STMT.check(method.getChildren().getLast())) {
                 var message = "Return statement is missing";
                 addReport(Report.newError(
                         Stage.SEMANTIC,
@@ -81,7 +81,7 @@ public class UndeclaredVariable extends AnalysisVisitor {
 
     private Void visitParam(JmmNode param, SymbolTable table) {
         var type = param.getChild(0);
-        if (type.getKind().equals("Id")) {
+        if (Kind.ID.check(type)) {
             var name = type.get("name");
             if (!hasImport(table, name) && !table.getClassName().equals(name)) {
                 var message = String.format("Parameter of type %s does not exist.", name);
@@ -300,7 +300,7 @@ public class UndeclaredVariable extends AnalysisVisitor {
             );
         }
         var type = varDecl.getChild(0);
-        if (type.getKind().equals("Id")) {
+        if (Kind.ID.check(type)) {
             var name = type.get("name");
             if (!hasImport(table, name) && !table.getClassName().equals(name)) {
                 var message = String.format("Variable of type %s does not exist.", name);
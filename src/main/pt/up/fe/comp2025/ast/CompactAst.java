@@ -0,0 +1,162 @@
+package pt.up.fe.comp2025.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.specs.util.SpecsCheck;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a compact copy of an AST, used when the 'compactAst' option is set.
+ * <p>
+ * The copy has the same JmmNode API, but attribute strings and kind hierarchies are shared between nodes, attributes
+ * and children are stored in arrays of the exact size instead of a map per node, IntegerLiteral values are kept as
+ * ints and operators as {@link Operator}. Attributes still read the same through {@code get}, use
+ * {@link #getIntValue} and {@link Operator#of} to avoid parsing them.
+ */
+public class CompactAst {
+
+    private final Map<String, String> strings;
+    private final Map<List<String>, List<String>> hierarchies;
+    private final Map<List<String>, String[]> attributeNames;
+
+    private CompactAst() {
+        this.strings = new HashMap<>();
+        this.hierarchies = new HashMap<>();
+        this.attributeNames = new HashMap<>();
+    }
+
+    public static JmmNode compact(JmmNode root) {
+        return new CompactAst().copy(root);
+    }
+
+    /**
+     * @return the value of an IntegerLiteral node, in either AST representation
+     */
+    public static int getIntValue(JmmNode literal) {
+        if (literal.getObject("value") instanceof Integer value) {
+            return value;
+        }
+        return Integer.parseInt(literal.get("value"));
+    }
+
+    private JmmNode copy(JmmNode node) {
+        var hierarchy = hierarchies.computeIfAbsent(node.getHierarchy(), List::copyOf);
+        var names = new ArrayList<String>(node.getAttributes().size());
+        for (var attribute : node.getAttributes()) {
+            names.add(intern(attribute));
+        }
+
+        // Nodes of the same kind usually have the same attributes, so the array of names is shared between them
+        var keys = attributeNames.computeIfAbsent(names, list -> list.toArray(String[]::new));
+        var values = new Object[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = compactValue(node, keys[i]);
+        }
+
+        var copy = new CompactNode(hierarchy, keys, values, node.getNumChildren());
+
+        for (var child : node.getChildren()) {
+            copy.add(copy(child));
+        }
+
+        return copy;
+    }
+
+    private Object compactValue(JmmNode node, String attribute) {
+        var value = node.getObject(attribute);
+        if (!(value instanceof String string)) {
+            return value;
+        }
+
+        // Literals that do not fit in an int are kept as they were written, like in the normal AST
+        if (attribute.equals("value") && Kind.INTEGER_LITERAL.check(node) && fitsInInt(string)) {
+            return Integer.valueOf(string);
+        }
+
+        if (attribute.equals("op")) {
+            return Operator.fromSymbol(string);
+        }
+
+        return intern(string);
+    }
+
+    private static boolean fitsInInt(String digits) {
+        try {
+            Integer.parseInt(digits);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private String intern(String string) {
+        return strings.computeIfAbsent(string, s -> s);
+    }
+
+    /**
+     * Keeps its attributes in two parallel arrays, so the map inherited from AJmmNode stays empty and never allocates
+     * its table. The array of names is shared until an attribute is added to the node.
+     */
+    private static class CompactNode extends JmmNodeImpl {
+
+        private String[] keys;
+        private Object[] values;
+
+        CompactNode(List<String> hierarchy, String[] keys, Object[] values, int numChildren) {
+            super(hierarchy);
+
+            // Shared with the other nodes of the same kind, instead of a copy per node
+            this.hierarchy = hierarchy;
+            this.children = new ArrayList<>(numChildren);
+            this.keys = keys;
+            this.values = values;
+        }
+
+        @Override
+        public Collection<String> getAttributes() {
+            return Collections.unmodifiableList(Arrays.asList(keys));
+        }
+
+        @Override
+        public Object putObject(String attribute, Object value) {
+            var index = indexOf(attribute);
+            if (index >= 0) {
+                var previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            values = Arrays.copyOf(values, values.length + 1);
+            keys[keys.length - 1] = attribute;
+            values[values.length - 1] = value;
+            return null;
+        }
+
+        @Override
+        public Object getObject(String attribute) {
+            var index = indexOf(attribute);
+            var value = index >= 0 ? values[index] : null;
+
+            SpecsCheck.checkNotNull(value, () -> "Node " + getKind() + " does not contain attribute '" + attribute + "'");
+
+            return value;
+        }
+
+        private int indexOf(String attribute) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(attribute)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
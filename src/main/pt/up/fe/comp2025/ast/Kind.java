@@ -3,9 +3,7 @@ package pt.up.fe.comp2025.ast;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.specs.util.SpecsStrings;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 
 /**
  * Enum that mirrors the nodes that are supported by the AST.
@@ -46,7 +44,27 @@ public enum Kind {
     LENGTH,
     PARENTHESIS_EXPR,
     NEGATION,
-    ARRAY_STMT;
+    ARRAY_STMT,
+    BRACKETS,
+    ID,
+    INT,
+    BOOLEAN,
+    FLOAT,
+    STRING,
+    ARRAY,
+    STRING_ARRAY,
+    VARARGS;
+
+    // Kinds whose nodes are alternatives of a grammar rule, checked through the node hierarchy
+    private static final Set<Kind> SUPER_KINDS = EnumSet.of(EXPR, STMT, TYPE);
+
+    private static final Map<String, Kind> NODE_KINDS = new HashMap<>();
+
+    static {
+        for (Kind k : Kind.values()) {
+            NODE_KINDS.put(k.getNodeName(), k);
+        }
+    }
 
 
     private final String name;
@@ -60,13 +78,18 @@ public enum Kind {
     }
 
     public static Kind fromString(String kind) {
-
-        for (Kind k : Kind.values()) {
-            if (k.getNodeName().equals(kind)) {
-                return k;
-            }
+        var k = NODE_KINDS.get(kind);
+        if (k == null) {
+            throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
         }
-        throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
+        return k;
+    }
+
+    /**
+     * @return the Kind of the given node, to be used in switches
+     */
+    public static Kind of(JmmNode node) {
+        return fromString(node.getKind());
     }
 
     public static List<String> toNodeName(Kind firstKind, Kind... otherKinds) {
@@ -96,7 +119,10 @@ public enum Kind {
      * @return
      */
     public boolean check(JmmNode node) {
-        return node.isInstance(this);
+        if (SUPER_KINDS.contains(this)) {
+            return node.isInstance(this);
+        }
+        return NODE_KINDS.get(node.getKind()) == this;
     }
 
     /**
@@ -0,0 +1,77 @@
+package pt.up.fe.comp2025.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Operators of BinaryExpr and IncrementExpr nodes.
+ * <p>
+ * In a compact AST the 'op' attribute holds an Operator instead of a String. Its toString is the operator symbol, so
+ * {@code node.get("op")} returns the same value in both representations.
+ */
+public enum Operator {
+    MUL("*"),
+    DIV("/"),
+    ADD("+"),
+    SUB("-"),
+    LT("<"),
+    GT(">"),
+    AND("&&"),
+    OR("||"),
+    INC("++"),
+    DEC("--");
+
+    private static final Map<String, Operator> SYMBOLS = new HashMap<>();
+
+    static {
+        for (Operator op : Operator.values()) {
+            SYMBOLS.put(op.symbol, op);
+        }
+    }
+
+    private final String symbol;
+
+    Operator(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public static Operator fromSymbol(String symbol) {
+        var op = SYMBOLS.get(symbol);
+        if (op == null) {
+            throw new RuntimeException("Could not convert string '" + symbol + "' to an Operator");
+        }
+        return op;
+    }
+
+    /**
+     * @return the operator of the given node, in either AST representation
+     */
+    public static Operator of(JmmNode node) {
+        if (node.getObject("op") instanceof Operator op) {
+            return op;
+        }
+        return fromSymbol(node.get("op"));
+    }
+
+    /**
+     * Sets the operator of the given node, keeping the AST representation it already has.
+     */
+    public static void set(JmmNode node, Operator op) {
+        if (node.getObject("op") instanceof Operator) {
+            node.putObject("op", op);
+        } else {
+            node.put("op", op.getSymbol());
+        }
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    @Override
+    public String toString() {
+        return symbol;
+    }
+}
@@ -0,0 +1,75 @@
+package pt.up.fe.comp2025.ast;
+
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Resolved types of the expressions of the AST, queried through {@link TypeUtils}.
+ * <p>
+ * Types are kept in a side table keyed by node identity rather than in node attributes, so they do not show up when
+ * the AST is printed. Nodes created after attribution (e.g. by the optimizations) are typed on their first query.
+ * Passes that move nodes must call {@link #clear()} when they are done, since the type of some expressions depends on
+ * their parent.
+ */
+public class TypeAttribution {
+
+    // Results of TypeUtils.getExprType and TypeUtils.getNodeType, which differ for some kinds of nodes
+    private final Map<JmmNode, Type> exprTypes;
+    private final Map<JmmNode, Type> nodeTypes;
+
+    public TypeAttribution() {
+        this.exprTypes = new ConcurrentHashMap<>();
+        this.nodeTypes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Types every expression of the given AST.
+     * Expressions that cannot be typed (e.g. undeclared variables) are left to the analysis passes that report them.
+     */
+    public void attribute(JmmNode root, JmmSymbolTable table) {
+        var typeUtils = new TypeUtils(table);
+
+        for (var node : root.getDescendants(Kind.EXPR)) {
+            try {
+                typeUtils.getExprType(node);
+                TypeUtils.getNodeType(node, table);
+            } catch (RuntimeException e) {
+                // Not cached, the query throws again when it is made by the analysis
+            }
+        }
+    }
+
+    /**
+     * Forgets every type, so each one is computed again on its next query.
+     */
+    public void clear() {
+        exprTypes.clear();
+        nodeTypes.clear();
+    }
+
+    Type getExprType(JmmNode node, Function<JmmNode, Type> compute) {
+        return get(exprTypes, node, compute);
+    }
+
+    Type getNodeType(JmmNode node, Function<JmmNode, Type> compute) {
+        return get(nodeTypes, node, compute);
+    }
+
+    private static Type get(Map<JmmNode, Type> types, JmmNode node, Function<JmmNode, Type> compute) {
+        var type = types.get(node);
+        if (type != null) {
+            return type;
+        }
+
+        // Not computeIfAbsent, since computing a type queries the types of other nodes
+        type = compute.apply(node);
+        var previous = types.putIfAbsent(node, type);
+
+        return previous != null ? previous : type;
+    }
+}
@@ -4,6 +4,7 @@ import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2025.symboltable.ResolvedSymbol;
 
 /**
  * Utility methods regarding types.
@@ -57,24 +58,7 @@ public class TypeUtils {
         return className.equals(table.getClassName());
     }
     public Boolean hasImport(String importName) {
-        for (var importStmt : table.getImports()) {
-            if (importStmt.equals(importName)) {
-                return true;
-            }
-
-            if (importStmt.endsWith("." + importName)) {
-                return true;
-            }
-
-            int lastDotIndex = importStmt.lastIndexOf('.');
-            if (lastDotIndex != -1) {
-                String simpleName = importStmt.substring(lastDotIndex + 1);
-                if (simpleName.equals(importName)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return table.getImportIndex().contains(importName);
     }
 
     public Type getRetType(JmmNode node) {
@@ -92,179 +76,117 @@ public class TypeUtils {
      * @return
      */
     public Type getExprType(JmmNode expr) {
-        var kind = expr.getKind();
-
-        if(kind.equals("BooleanExpr") || kind.equals("Negation")) {
-            return new Type("boolean", false);
-        }
-        else if(kind.equals("BinaryExpr")) {
-            var operation = expr.get("op");
-            if(operation.equals("&&")|| operation.equals("||") || operation.equals("<") || operation.equals(">")) {
-                return new Type("boolean", false);
-            } else {
-                return new Type("int", false);
-            }
-        }
-        else if(kind.equals("IntegerLiteral") || kind.equals("Length") || kind.equals("IncrementExpr")) {
-            return new Type("int", false);
-        }
-        else if(kind.equals("VarRefExpr")) {
-            var id = expr.get("name");
-            var methodName = getCurrentMethodName(expr);
+        return table.getTypeAttribution().getExprType(expr, this::computeExprType);
+    }
 
-            // Check parameters
-            for (var varDecl : table.getParameters(methodName)) {
-                if (varDecl.getName().equals(id)) {
-                    return varDecl.getType();
+    private Type computeExprType(JmmNode expr) {
+        return switch (Kind.of(expr)) {
+            case BOOLEAN_EXPR, NEGATION -> new Type("boolean", false);
+            case BINARY_EXPR -> getBinaryExprType(expr);
+            case INTEGER_LITERAL, LENGTH, INCREMENT_EXPR -> new Type("int", false);
+            case VAR_REF_EXPR -> {
+                var id = expr.get("name");
+                var methodName = getCurrentMethodName(expr);
+
+                // Check parameters, local variables and fields
+                var symbol = table.resolve(methodName, id);
+                if (symbol.isPresent()) {
+                    yield symbol.get().type();
                 }
-            }
 
-            // Check local variables
-            for (var varDecl : table.getLocalVariables(methodName)) {
-                if (varDecl.getName().equals(id)) {
-                    return varDecl.getType();
+                //Case if "io" and "io" is imported class, checks the parent
+                if (hasImport(id)) {
+                    yield getExprType(expr.getParent());
                 }
-            }
 
-            // Check fields
-            for (var varDecl : table.getFields()) {
-                if (varDecl.getName().equals(id)) {
-                    return varDecl.getType();
-                }
-            }
 
-            //Case if "io" and "io" is imported class, checks the parent
-            if (hasImport(id)) {
-                return getExprType(expr.getParent());
+                throw new RuntimeException("Undeclared variable: " + id);
             }
+            case METHOD_CALL_EXPR -> {
+                String methodName = expr.get("method");
+                Type returnType = table.getReturnType(methodName);
 
+                if (returnType != null) {
+                    yield returnType;
+                }
 
-            throw new RuntimeException("Undeclared variable: " + id);
-        }
-        else if(kind.equals("MethodCallExpr")) {
-            String methodName = expr.get("method");
-            Type returnType = table.getReturnType(methodName);
+                JmmNode receiver = expr.getChild(0);
+                if (hasImport(receiver.get("name")) || Kind.VAR_REF_EXPR.check(receiver)) {
+                    JmmNode parent = expr.getParent();
+                    yield switch (Kind.of(parent)) {
+                        case ASSIGN_STMT -> getExprType(parent.getChild(0));
+                        case RETURN_STMT -> table.getReturnType(parent.getParent().get("name"));
+                        default -> new Type("void", false);
+                    };
+                }
 
-            if (returnType != null) {
-                return returnType;
+                throw new RuntimeException("Unknown method return type for: " + methodName);
             }
-
-            JmmNode receiver = expr.getChild(0);
-            if (hasImport(receiver.get("name")) || receiver.getKind().equals("VarRefExpr")) {
-                JmmNode parent = expr.getParent();
-                if (parent.getKind().equals("AssignStmt")) {
-                    return getExprType(parent.getChild(0));
-                } else if (parent.getKind().equals("ReturnStmt")) {
-                    return table.getReturnType(parent.getParent().get("name"));
-                } else {
-                    return new Type("void", false);
+            case ARRAY_ACCESS_EXPR -> {
+                Type arrayType = getExprType(expr.getChild(0));
+                yield new Type(arrayType.getName(), false); // Return element type
+            }
+            case ARRAY_DECLARATION -> new Type("int", true);
+            case ARRAY_INIT_EXPR -> {
+                if (expr.getNumChildren() > 0) {
+                    Type elementType = getExprType(expr.getChild(0));
+                    yield new Type(elementType.getName(), true);
                 }
+                yield new Type("int", true); // Default to int array if empty
             }
+            case NEW_CLASS -> new Type(expr.get("name"), false);
+            case OBJECT_CALL_EXPR -> new Type(table.getClassName(), false);
 
-            throw new RuntimeException("Unknown method return type for: " + methodName);
-        }
-        else if (kind.equals("ArrayAccessExpr")) {
-            Type arrayType = getExprType(expr.getChild(0));
-            return new Type(arrayType.getName(), false); // Return element type
-        }
-        else if(kind.equals("ArrayDeclaration")) {
-            return new Type("int", true);
-        }
-        else if(kind.equals("ParenthesizedExpr")) {
-            return getExprType(expr.getChildren().getFirst());
-        }
-        else if(kind.equals("ArrayInitExpr")) {
-            if (expr.getNumChildren() > 0) {
-                Type elementType = getExprType(expr.getChild(0));
-                return new Type(elementType.getName(), true);
-            }
-            return new Type("int", true); // Default to int array if empty
-        }
-        else if(kind.equals("NewClass")) {
-            return new Type(expr.get("name"), false);
-        }
-        else if (kind.equals("ObjectCallExpr")) {
-            return new Type(table.getClassName(), false);
-        }
-        else if (kind.equals("ThisExpr")) {
-            return new Type(table.getClassName(), false);
-        }
+            // For statements that don't produce values
+            default -> new Type("void", false);
+        };
+    }
 
-        // For statements that don't produce values
-        return new Type("void", false);
+    private static Type getBinaryExprType(JmmNode expr) {
+        return switch (expr.get("op")) {
+            case "&&", "||", "<", ">" -> new Type("boolean", false);
+            default -> new Type("int", false);
+        };
     }
 
 
     public static Type getNodeType(JmmNode node, SymbolTable table) {
-        var kind = node.getKind();
-        if(kind.equals("BooleanExpr") || kind.equals("Negation")){
-            return new Type("boolean", false);
+        if (table instanceof JmmSymbolTable jmmTable) {
+            return jmmTable.getTypeAttribution().getNodeType(node, n -> computeNodeType(n, table));
         }
-        else if(kind.equals("BinaryExpr")){
-            var operation = node.get("op");
-            if(operation.equals("&&")|| operation.equals("||") || operation.equals("<") || operation.equals(">")){
-                return new Type("boolean", false);
-            }else{
-                return new Type("int", false);
-            }
-        }
-        else if(kind.equals("IntegerLiteral") || kind.equals("Length") || kind.equals("IncrementExpr")){
-            return new Type("int", false);
-        }
-        else if(kind.equals("VarRefExpr")){
-            var id = node.get("name");
-            var methodName = getCurrentMethodName(node);
-            for (var varDecl : table.getParameters(methodName)) {
-                System.out.println(varDecl);
-                if (varDecl.getName().equals(id)) {
-                    return varDecl.getType();
-                }
-            }
-            // Var is a declared variable, return
-            for (var varDecl : table.getLocalVariables(methodName)) {
-                if (varDecl.getName().equals(id)) {
-                    return varDecl.getType();
-                }
-            }
+        return computeNodeType(node, table);
+    }
 
-            for (var varDecl : table.getFields()) {
-                if (varDecl.getName().equals(id)) {
-                    return varDecl.getType();
+    private static Type computeNodeType(JmmNode node, SymbolTable table) {
+        return switch (Kind.of(node)) {
+            case BOOLEAN_EXPR, NEGATION -> new Type("boolean", false);
+            case BINARY_EXPR -> getBinaryExprType(node);
+            case INTEGER_LITERAL, LENGTH, INCREMENT_EXPR -> new Type("int", false);
+            case VAR_REF_EXPR -> {
+                var id = node.get("name");
+                var methodName = getCurrentMethodName(node);
+                yield ((JmmSymbolTable) table).resolve(methodName, id)
+                        .map(ResolvedSymbol::type)
+                        .orElse(new Type("Void", false));
+            }
+            case METHOD_CALL_EXPR -> {
+                if (table.getReturnType(node.get("method"))!=null){
+                    yield table.getReturnType(node.get("method"));
                 }
-            }
-            return new Type("Void", false);
-        }
-        else if(kind.equals("MethodCallExpr")){
-            if (table.getReturnType(node.get("method"))!=null){
-                return table.getReturnType(node.get("method"));
-            }
-            return new Type("everything", false);
-        }
-        else if (kind.equals("ArrayAccessExpr")){
-            //System.out.println(getNodeType(node.getChild(0),table));
-            return new Type(getNodeType(node.getChild(0),table).getName(),false);
-        }
-        else if(kind.equals("ArrayDeclaration")){
-            return new Type("int",true);
-        }
-        else if(kind.equals("ParenthesisExpr")){
-            return getNodeType(node.getChildren().getFirst(), table);
-        }
-        else if(kind.equals("ArrayInitExpr")){
-            return new Type("int",true);
-        }
-        else if(kind.equals("NewClass")){
-            return new Type(node.get("name"), false);
-        }
-        else if (kind.equals("ObjectCallExpr")){
-            return new Type(node.get("value"), false);
-        }
-
-        return new Type("Void",false);
+                yield new Type("everything", false);
+            }
+            case ARRAY_ACCESS_EXPR -> new Type(getNodeType(node.getChild(0),table).getName(),false);
+            case ARRAY_DECLARATION, ARRAY_INIT_EXPR -> new Type("int",true);
+            case PARENTHESIS_EXPR -> getNodeType(node.getChildren().getFirst(), table);
+            case NEW_CLASS -> new Type(node.get("name"), false);
+            case OBJECT_CALL_EXPR -> new Type(node.get("value"), false);
+            default -> new Type("Void",false);
+        };
     }
+
     private static String getCurrentMethodName(JmmNode node) {
         while (node != null) {
-            if (node.getKind().equals("MethodDecl")) {
+            if (Kind.METHOD_DECL.check(node)) {
                 return node.get("name");
             }
             node = node.getParent();
@@ -4,6 +4,8 @@ import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 
+import java.util.Map;
+
 /**
  * Implementation of the Jasmin backend.
  */
@@ -22,4 +24,15 @@ public class JasminBackendImpl implements JasminBackend {
         return new JasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
     }
 
+    /**
+     * Generates the Jasmin code reusing the code of the methods in the cache, which must be a concurrent map since
+     * methods are generated in parallel. Entries must be removed by the caller when the corresponding method changes.
+     */
+    public JasminResult toJasmin(OllirResult ollirResult, Map<String, String> methodCodeCache) {
+        var jasminGenerator = new JasminGenerator(ollirResult, methodCodeCache);
+        var jasminCode = jasminGenerator.build();
+
+        return new JasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
+    }
+
 }
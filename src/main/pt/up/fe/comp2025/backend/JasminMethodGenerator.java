@@ -0,0 +1,604 @@
+package pt.up.fe.comp2025.backend;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+import org.specs.comp.ollir.tree.TreeNode;
+import org.specs.comp.ollir.type.ArrayType;
+import org.specs.comp.ollir.type.ClassType;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+import pt.up.fe.specs.util.utilities.StringLines;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Generates the Jasmin code of a single OLLIR method.
+ * <p>
+ * All the state needed while generating a method (stack and locals limits, label counter) lives in this instance,
+ * so different methods of the same class can be generated concurrently.
+ */
+public class JasminMethodGenerator {
+
+    private static final String NL = "\n";
+    private static final String TAB = "   ";
+
+    private final Method currentMethod;
+
+    private final JasminUtils types;
+
+    private int labelCounter;
+
+    private int currentStackLimit;
+    private int stackLimit;
+    private int localsLimit;
+
+    public JasminMethodGenerator(Method method, JasminUtils types) {
+        this.currentMethod = method;
+        this.types = types;
+    }
+
+    public String generate() {
+        return generateMethod(currentMethod);
+    }
+
+    private String generateArrayLengthInstruction(ArrayLengthInstruction arrayLengthInstruction) {
+        StringBuilder code = new StringBuilder();
+        code.append(apply(arrayLengthInstruction.getOperands().getFirst()));
+        code.append("arraylength" + NL);
+        adjustStack(1);
+        return code.toString();
+    }
+
+    private String generateUnaryInstruction(UnaryOpInstruction instruction) {
+        StringBuilder code = new StringBuilder();
+
+        // Load operand
+        code.append(apply(instruction.getOperand()));
+
+        OperationType opType = instruction.getOperation().getOpType();
+
+        adjustStack(1);
+        adjustStack(-1);
+
+        adjustLocals(1);
+
+        switch (opType) {
+            case NOTB -> {
+                code.append("iconst_1").append("\n");
+                code.append("ixor").append("\n");
+            }
+            default -> {
+                throw new NotImplementedException(opType);
+            }
+        }
+
+        return code.toString();
+    }
+
+
+    private String generateOpCondInstruction(OpCondInstruction opCondInstruction) {
+        StringBuilder code = new StringBuilder();
+
+        // Negated conditions, e.g. the exit test of a while
+        if (opCondInstruction.getCondition() instanceof UnaryOpInstruction unary
+                && unary.getOperation().getOpType() == OperationType.NOTB) {
+            code.append(apply(unary.getOperand()));
+            adjustStack(-1);
+            code.append("ifeq ").append(opCondInstruction.getLabel()).append(NL);
+            return code.toString();
+        }
+
+        BinaryOpInstruction cond = (BinaryOpInstruction) opCondInstruction.getCondition();
+
+        // Load operands
+        code.append(apply(cond.getLeftOperand()));
+        code.append(apply(cond.getRightOperand()));
+
+        // Choose the correct comparison
+        String op;
+        switch (cond.getOperation().getOpType()) {
+            case LTH -> op = "if_icmplt";
+            case LTE -> op = "if_icmple";
+            case GTH -> op = "if_icmpgt";
+            case GTE -> op = "if_icmpge";
+            case EQ  -> op = "if_icmpeq";
+            case NEQ -> op = "if_icmpne";
+            default -> throw new NotImplementedException(cond.getOperation().getOpType());
+        }
+
+        adjustStack(-1);
+        code.append(op).append(" ").append(opCondInstruction.getLabel()).append(NL);
+        return code.toString();
+    }
+
+    private String generateGoToInstruction(GotoInstruction gotoInstruction) {
+        return "goto " + gotoInstruction.getLabel() + NL;
+    }
+
+    private String generateSingleOpCondInstruction(SingleOpCondInstruction singleOpCondInstruction) {
+        StringBuilder code = new StringBuilder();
+        Instruction condition = singleOpCondInstruction.getCondition();
+
+        code.append(apply(condition.toInstruction())).append("ifne").append(" ").append(singleOpCondInstruction.getLabel()).append(NL);
+        adjustStack(-1);
+
+        return code.toString();
+
+    }
+
+    private String generateGetFieldInstruction(GetFieldInstruction getFieldInstruction) {
+        StringBuilder code = new StringBuilder();
+        Element first = getFieldInstruction.getOperands().getFirst();
+        Element second = getFieldInstruction.getOperands().get(1);
+
+        code.append("\t").append(this.apply(first));
+        code.append("\tgetfield ").append(types.getType(first.getType())).append("/").append(((Operand) second).getName());
+        code.append(" ").append(types.getDescriptor(second.getType())).append(NL);
+        return code.toString();
+    }
+
+    private String generatePutFieldInstruction(PutFieldInstruction putFieldInstruction) {
+        StringBuilder code = new StringBuilder();
+
+        adjustStack(1);
+
+        Element first = putFieldInstruction.getOperands().getFirst();
+
+        Element second = putFieldInstruction.getOperands().get(1);
+
+        Element last = putFieldInstruction.getOperands().getLast();
+
+        code.append("\t").append(this.apply(first));
+
+        code.append(this.apply(last));
+
+        code.append("\tputfield ").append(types.getType(first.getType())).append("/").append(((Operand) second).getName());
+
+        code.append(" ").append(types.getDescriptor(second.getType())).append(NL);
+
+        //System.out.println(code.toString());
+
+        adjustStack(-2);
+
+        return code.toString();
+    }
+
+
+    private String generateVirtualInstruction(InvokeVirtualInstruction invokeVirtualInstruction) {
+        StringBuilder code = new StringBuilder();
+
+        code.append(apply(invokeVirtualInstruction.getOperands().getFirst()));
+        LiteralElement method = (LiteralElement) invokeVirtualInstruction.getOperands().get(1);
+        List<Element> args = invokeVirtualInstruction.getOperands().subList(2, invokeVirtualInstruction.getOperands().size());
+
+        for (var arg : args) {
+            code.append(apply(arg));
+        }
+
+        code.append("invokevirtual ").append(types.getType(invokeVirtualInstruction.getOperands().getFirst().getType()) + "/" + method.getLiteral());
+        code.append(types.getMethodDescriptor(args, invokeVirtualInstruction.getReturnType()));
+
+        currentStackLimit = 0;
+
+        var retType = types.getType(invokeVirtualInstruction.getReturnType());
+
+        if (!retType.equals("V")){
+            adjustStack(1);
+        }
+
+        code.append(NL);
+        return code.toString();
+    }
+
+    private String getImportClassName(String name){
+        //TODO Esta maneira nao parece ser a mais correta
+        if (name.contains(".")) return name.split(": ")[1].split("\\.")[0];
+        else return name;
+    }
+
+    private String generateStaticInstruction(InvokeStaticInstruction invokeStaticInstruction) {
+        StringBuilder code = new StringBuilder();
+
+        String importedClass = this.getImportClassName(invokeStaticInstruction.getOperands().getFirst().toString());
+
+        LiteralElement second = (LiteralElement) invokeStaticInstruction.getOperands().get(1);
+
+
+
+        List<String> params = new ArrayList<>();
+        for (Element element : invokeStaticInstruction.getOperands()){
+            var type = types.getType(element.getType());
+            if (type.equals("I") || type.equals("Z") || type.equals("V") || type.equals("[I")) {
+                code.append(this.apply(element));
+                params.add(type);
+            }
+        }
+
+        code.append("invokestatic ").append(importedClass);
+
+        var retType = types.getType(invokeStaticInstruction.getReturnType());
+
+        code.append("/").append(second.getLiteral())
+                .append(types.getMethodDescriptor(params, retType));
+
+        currentStackLimit = 0;
+
+        if (!retType.equals("V")){
+            adjustStack(1);
+        }
+
+        code.append(NL);
+
+        return code.toString();
+    }
+
+    private String generateSpecialInstruction(InvokeSpecialInstruction invokeSpecialInstruction) {
+        StringBuilder code = new StringBuilder();
+
+        code.append(this.apply(invokeSpecialInstruction.getCaller()))
+                .append("invokespecial ");
+        for (Element element : invokeSpecialInstruction.getOperands()){
+            code.append(types.getType(element.getType()));
+        }
+        code.append("/<init>")
+                .append("(")
+                .append(")");
+
+
+        var retType = types.getType(invokeSpecialInstruction.getReturnType());
+
+        currentStackLimit = 0;
+
+        if (!retType.equals("V")){
+            adjustStack(1);
+        }
+        code.append(retType).append(NL);
+
+        return code.toString();
+    }
+
+    private String generateNewInstruction(NewInstruction newInstruction) {
+        StringBuilder code = new StringBuilder();
+        var instructionType = newInstruction.getCaller().getType();
+        if (!types.getType(instructionType).equals("[I")) {
+            code.append("\nnew ").append(types.getType(instructionType))
+                    .append(NL);
+            adjustStack(1);
+        }
+        else{
+            code.append(apply(newInstruction.getOperands().get(1)));
+            code.append("newarray int" + NL);
+            adjustStack(1);
+            adjustStack(-1);
+        }
+
+        return code.toString();
+    }
+
+    private String apply(TreeNode node) {
+        var code = new StringBuilder();
+
+        // Print the corresponding OLLIR code as a comment
+        //code.append("; ").append(node).append(NL);
+
+        code.append(generate(node));
+
+        return code.toString();
+    }
+
+    private String generate(TreeNode node) {
+        return switch (node) {
+            case AssignInstruction assign -> generateAssign(assign);
+            case SingleOpInstruction singleOp -> generateSingleOp(singleOp);
+            case LiteralElement literal -> generateLiteral(literal);
+            case Operand operand -> generateOperand(operand);
+            case BinaryOpInstruction binaryOp -> generateBinaryOp(binaryOp);
+            case ReturnInstruction returnInst -> generateReturn(returnInst);
+            case NewInstruction newInst -> generateNewInstruction(newInst);
+            case InvokeStaticInstruction invokeStatic -> generateStaticInstruction(invokeStatic);
+            case InvokeSpecialInstruction invokeSpecial -> generateSpecialInstruction(invokeSpecial);
+            case InvokeVirtualInstruction invokeVirtual -> generateVirtualInstruction(invokeVirtual);
+            case PutFieldInstruction putField -> generatePutFieldInstruction(putField);
+            case GetFieldInstruction getField -> generateGetFieldInstruction(getField);
+            case SingleOpCondInstruction singleOpCond -> generateSingleOpCondInstruction(singleOpCond);
+            case GotoInstruction gotoInst -> generateGoToInstruction(gotoInst);
+            case OpCondInstruction opCond -> generateOpCondInstruction(opCond);
+            case UnaryOpInstruction unaryOp -> generateUnaryInstruction(unaryOp);
+            case ArrayLengthInstruction arrayLength -> generateArrayLengthInstruction(arrayLength);
+            default -> throw new NotImplementedException(node.getClass());
+        };
+    }
+
+
+    private String generateMethod(Method method) {
+        //System.out.println("STARTING METHOD " + method.getMethodName());
+        currentStackLimit = 0;
+        stackLimit = 0;
+        localsLimit = 0;
+        adjustLocals(method.getParams().size());
+
+        var code = new StringBuilder();
+
+        // calculate modifier
+        var modifier = types.getModifier(method.getMethodAccessModifier());
+
+        var methodName = method.getMethodName();
+
+        // TODO: Hardcoded param types and return type, needs to be expanded
+        //antes as duas linhas de baixo tavam = "I" que ear para ints
+        var params = method.getParams();
+        var returnType = method.getReturnType() != null ? types.getType(method.getReturnType()) : "";
+
+        if (methodName.equals("main")) {
+            code.append("\n.method ").append(modifier).append("static ").append(methodName);
+        }
+        else code.append("\n.method ").append(modifier)
+                .append(methodName);
+
+        List<String> paramTypes = new ArrayList<>();
+        for (var param: params) {
+            paramTypes.add(types.getDescriptor(param.getType()));
+        }
+
+        code.append(types.getMethodDescriptor(paramTypes, returnType)).append(NL);
+
+        StringBuilder instrCode = new StringBuilder();
+
+        // Calculate instructions before to know stack limit
+        for (var inst : method.getInstructions()) {
+            for (var label : method.getLabels().entrySet()){
+                if (label.getValue().equals(inst)) instrCode.append(label.getKey()).append(":").append(NL);
+            }
+
+            var instCode = StringLines.getLines(apply(inst)).stream()
+                    .collect(Collectors.joining(NL + TAB, TAB, NL));
+
+            instrCode.append(instCode);
+        }
+
+        // Add limits
+        code.append(TAB).append(".limit stack ").append(stackLimit).append(NL);
+        code.append(TAB).append(".limit locals ").append(localsLimit).append(NL);
+
+        code.append(instrCode);
+
+        code.append(".end method\n");
+
+        //System.out.println("ENDING METHOD " + method.getMethodName());
+        return code.toString();
+    }
+
+    private String generateAssign(AssignInstruction assign) {
+        var code = new StringBuilder();
+
+        // generate code for loading what's on the right
+        // store value in the stack in destination
+        var lhs = assign.getDest();
+        if (!(lhs instanceof Operand)) {
+            throw new NotImplementedException(lhs.getClass());
+        }
+        if (lhs instanceof ArrayOperand) {
+            code.append(apply(lhs));
+            code.append(apply(assign.getRhs()));
+            int lastIndex = code.lastIndexOf("iaload");
+            adjustStack(1);
+            if (lastIndex != -1) {
+                int endOfLine = code.indexOf("\n", lastIndex);
+                if (endOfLine == -1) {
+                    endOfLine = code.length();
+                }
+                code.delete(lastIndex, endOfLine + 1);
+            }
+            code.append("iastore");
+            adjustStack(-3);
+        }else {
+            if (assign.getRhs().getInstType().toString().equals("BINARYOPER")) {
+                BinaryOpInstruction binaryOp = (BinaryOpInstruction) assign.getRhs();
+                OperationType opType = binaryOp.getOperation().getOpType();
+
+                if (opType == OperationType.ADD || opType == OperationType.SUB) {
+                    Element left = binaryOp.getLeftOperand();
+                    Element right = binaryOp.getRightOperand();
+
+                    LiteralElement literal = null;
+                    Operand variable = null;
+
+                    // A literal on the left is only an increment for an addition, c - x is not x - c
+                    if (opType == OperationType.ADD && left instanceof LiteralElement && right instanceof Operand) {
+                        literal = (LiteralElement) left;
+                        variable = (Operand) right;
+                    } else if (right instanceof LiteralElement && left instanceof Operand) {
+
+                        literal = (LiteralElement) right;
+                        variable = (Operand) left;
+                    }
+
+                    // Compared by register, since register allocation may give both variables the same one
+                    if (literal != null && variable != null && isSameRegister(variable, (Operand) lhs)) {
+                        int value = Integer.parseInt(literal.getLiteral());
+                        if (opType == OperationType.SUB) {
+                            value = -value; // Convert subtraction to negative increment
+                        }
+
+                        // Check if value fits in iinc range (-128 to 127)
+                        if (value >= -128 && value <= 127) {
+                            int regIndex = currentMethod.getVarTable().get(variable.getName()).getVirtualReg();
+                            return "iinc " + regIndex + " " + value + NL;
+                        }
+                    }
+                }
+            }
+            code.append(apply(assign.getRhs()));
+            var operand = (Operand) lhs;
+            var reg = currentMethod.getVarTable().get(operand.getName());
+            // get register
+            var type = reg.getVarType();
+            adjustLocals(reg.getVirtualReg());
+            String middle = (reg.getVirtualReg() < 4) ? "_" : " ";
+            if (type instanceof ArrayType || type instanceof ClassType) {
+                code.append("astore").append(middle).append(reg.getVirtualReg()).append(NL);
+                adjustStack(-1);
+            } else {
+                code.append("istore").append(middle).append(reg.getVirtualReg()).append(NL);
+                adjustStack(-1);
+            }
+        }
+        return code.toString();
+    }
+
+    private boolean isSameRegister(Operand a, Operand b) {
+        var descriptorA = currentMethod.getVarTable().get(a.getName());
+        var descriptorB = currentMethod.getVarTable().get(b.getName());
+        return descriptorA != null && descriptorB != null && descriptorA.getVirtualReg() == descriptorB.getVirtualReg();
+    }
+
+    private String generateSingleOp(SingleOpInstruction singleOp) {
+        return apply(singleOp.getSingleOperand());
+    }
+
+    private String generateLiteral(LiteralElement literal) {
+        adjustStack(1);
+        adjustLocals(0);
+        int value = Integer.parseInt(literal.getLiteral());
+        if (value == -1) return "\ticonst_m1" + NL;
+        if (value >= 0 && value <= 5) return "\ticonst_" + value + NL;
+        if (value >= -128 && value <= 127) return "\tbipush " + value + NL;
+        else if (value >= -32768 && value <= 32767) return "\tsipush " + value + NL;
+        return "\tldc " + literal.getLiteral() + NL;
+    }
+
+    private String generateOperand(Operand operand) {
+
+        var reg = currentMethod.getVarTable().get(operand.getName());
+        int regNum = reg.getVirtualReg();
+        adjustLocals(regNum);
+
+        adjustStack(1);
+
+        if (operand instanceof ArrayOperand){
+            StringBuilder code = new StringBuilder();
+            code.append((regNum < 4 ? "aload_" + regNum : "aload " + regNum) + NL);
+            if (!((ArrayOperand) operand).getIndexOperands().isEmpty())  code.append(apply(((ArrayOperand) operand).getIndexOperands().get(0)));
+            code.append("iaload" + NL);
+            adjustStack(-1);
+            return code.toString();
+        }
+        else if (reg.getVarType() instanceof ArrayType || reg.getVarType() instanceof ClassType) {
+            return (regNum < 4 ? "aload_" + regNum : "aload " + regNum) + NL;
+        } else {
+            return (regNum < 4 ? "iload_" + regNum : "iload " + regNum) + NL;
+        }
+    }
+
+    private String generateBinaryOp(BinaryOpInstruction binaryOp) {
+        var code = new StringBuilder();
+        var opType = binaryOp.getOperation().getOpType();
+        var left = binaryOp.getLeftOperand();
+        var right = binaryOp.getRightOperand();
+
+        // Comparisons with a literal 0 test the other operand directly, so the 0 is not loaded
+        String zeroComparison = null;
+        if (isZero(right)) {
+            zeroComparison = getZeroComparison(opType, false);
+        } else if (isZero(left)) {
+            zeroComparison = getZeroComparison(opType, true);
+        }
+
+        // load values on the left and on the right
+        if (zeroComparison == null || !isZero(left)) {
+            code.append(apply(left));
+        }
+        if (zeroComparison == null || isZero(left)) {
+            code.append(apply(right));
+        }
+
+        // apply operation
+        var op = zeroComparison != null ? zeroComparison : switch (opType) {
+            case ADD -> "add";
+            case MUL -> "mul";
+            case SUB -> "sub";
+            case DIV -> "div";
+            case SHL -> "shl";
+            case SHR -> "shr";
+            case SHRR -> "ushr";
+            case LTH -> "if_icmplt";
+            case LTE -> "if_icmple";
+            case GTH -> "if_icmpgt";
+            case GTE -> "if_icmpge";
+            case EQ -> "if_icmpeq";
+            case NEQ -> "if_icmpne";
+            case ANDB -> "ifne";
+            default -> throw new NotImplementedException(opType);
+        };
+
+        if (types.isComparisonOperation(opType)) {
+            // Handle comparison operations (LTH, LTE, GTH, GTE, EQ, NEQ)
+            String trueLabel = "j_true_" + labelCounter;
+            String endLabel = "j_end" + labelCounter++;
+
+            code.append(op).append(" ").append(trueLabel).append(NL);
+            code.append("iconst_0").append(NL); // false case
+            adjustStack(1);
+
+            code.append("goto ").append(endLabel).append(NL);
+            code.append(trueLabel).append(":").append(NL);
+            code.append("iconst_1").append(NL); // true case
+            adjustStack(1);
+
+            code.append(endLabel).append(":").append(NL);
+        } else {
+            // Handle arithmetic operations (ADD, MUL, SUB, DIV)
+            code.append("i").append(op).append(NL);
+        }
+
+        adjustStack(-1);
+        adjustLocals(1);
+
+        return code.toString();
+    }
+
+    private static boolean isZero(Element operand) {
+        return operand instanceof LiteralElement literal && literal.getLiteral().equals("0");
+    }
+
+    /**
+     * @param zeroOnLeft whether the 0 is the left operand, in which case the comparison is mirrored
+     * @return the instruction comparing the other operand with 0, or null if the operation is not a comparison
+     */
+    private static String getZeroComparison(OperationType opType, boolean zeroOnLeft) {
+        return switch (opType) {
+            case LTH -> zeroOnLeft ? "ifgt" : "iflt";
+            case LTE -> zeroOnLeft ? "ifge" : "ifle";
+            case GTH -> zeroOnLeft ? "iflt" : "ifgt";
+            case GTE -> zeroOnLeft ? "ifle" : "ifge";
+            case EQ -> "ifeq";
+            case NEQ -> "ifne";
+            default -> null;
+        };
+    }
+
+    private void adjustStack(int delta) {
+        currentStackLimit += delta;
+        stackLimit = Math.max(stackLimit, currentStackLimit);
+    }
+
+    private void adjustLocals(int reg){
+        localsLimit = Math.max(localsLimit, reg + 1);
+    }
+
+
+    private String generateReturn(ReturnInstruction returnInst) {
+
+        if (returnInst.hasReturnValue()) {
+            return "\t" + this.apply(returnInst.getOperand().orElse(null)) + NL + "ireturn";
+        }
+        if (returnInst.getOperand().isPresent()) {
+            if (Objects.equals(Objects.requireNonNull(returnInst.getOperand().orElse(null)).getType().toString(), "INT32")
+                    || Objects.equals(Objects.requireNonNull(returnInst.getOperand().orElse(null)).getType().toString(), "BOOLEAN"))
+                return "ireturn";
+            else return "areturn";
+
+        }
+        return "return";
+    }
+}
\ No newline at end of file
@@ -3,23 +3,36 @@ package pt.up.fe.comp2025.backend;
 import org.specs.comp.ollir.*;
 import org.specs.comp.ollir.type.*;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.symboltable.ImportIndex;
 import pt.up.fe.specs.util.SpecsCheck;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JasminUtils {
 
     private final OllirResult ollirResult;
 
-    private List<String> imports;
+    private ImportIndex importIndex;
+
+    // Descriptor caches, valid for the imports of the current ClassUnit; shared by concurrently generated methods
+    private final Map<BuiltinKind, String> builtinDescriptors;
+    private final Map<BuiltinKind, String> arrayDescriptors;
+    private final Map<MethodSignature, String> methodDescriptors;
+
+    private record MethodSignature(List<String> params, String returnType) {
+    }
 
     public JasminUtils(OllirResult ollirResult) {
         // Can be useful to have if you expand this class with more methods
         this.ollirResult = ollirResult;
+        this.importIndex = new ImportIndex(List.of());
+        this.builtinDescriptors = new ConcurrentHashMap<>();
+        this.arrayDescriptors = new ConcurrentHashMap<>();
+        this.methodDescriptors = new ConcurrentHashMap<>();
     }
 
 
@@ -34,6 +47,19 @@ public class JasminUtils {
             return getFullSuperClass(classType.getName());
         }
 
+        if (type instanceof BuiltinType builtinType) {
+            return builtinDescriptors.computeIfAbsent(builtinType.getKind(), kind -> toDescriptor(type));
+        }
+
+        if (type instanceof ArrayType arrayType && arrayType.getNumDimensions() == 1
+                && arrayType.getElementType() instanceof BuiltinType elementType) {
+            return arrayDescriptors.computeIfAbsent(elementType.getKind(), kind -> toDescriptor(type));
+        }
+
+        return toDescriptor(type);
+    }
+
+    private String toDescriptor(Type type) {
         if (type instanceof ArrayType arrayType) {
             var elementType = arrayType.getElementType();
             if (elementType instanceof ClassType ct && ct.getName().equals("String[]")) {
@@ -51,6 +77,32 @@ public class JasminUtils {
         };
     }
 
+    /**
+     * Descriptor of a type when used as a field or as a parameter, i.e. class types are wrapped in 'L...;'.
+     */
+    public String getDescriptor(Type type) {
+        if (type instanceof ClassType) {
+            return "L" + getType(type) + ";";
+        }
+        if (BuiltinType.is(type, BuiltinKind.STRING)) {
+            return "Ljava/lang/String;";
+        }
+        return getType(type);
+    }
+
+    public String getMethodDescriptor(List<Element> args, Type returnType) {
+        var params = new ArrayList<String>(args.size());
+        for (var arg : args) {
+            params.add(getDescriptor(arg.getType()));
+        }
+        return getMethodDescriptor(params, getType(returnType));
+    }
+
+    public String getMethodDescriptor(List<String> paramDescriptors, String returnDescriptor) {
+        return methodDescriptors.computeIfAbsent(new MethodSignature(paramDescriptors, returnDescriptor),
+                signature -> "(" + String.join("", signature.params()) + ")" + signature.returnType());
+    }
+
     public boolean isComparisonOperation(OperationType opType) {
         return opType == OperationType.LTH ||
                 opType == OperationType.LTE ||
@@ -64,15 +116,11 @@ public class JasminUtils {
         if (superClass == null) {
             return "java/lang/Object";
         }
-        for (String imp : imports) {
-            if (imp.endsWith("." + superClass)) {
-                return imp.replace('.', '/');  // Convert to JVM path format
-            }
-        }
-        return superClass;
+        return importIndex.getInternalName(superClass);
     }
 
     public void setImports(List<String> imports) {
-        this.imports = imports;
+        this.importIndex = new ImportIndex(imports);
+        methodDescriptors.clear();
     }
 }
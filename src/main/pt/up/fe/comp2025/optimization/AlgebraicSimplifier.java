@@ -0,0 +1,337 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.ast.CompactAst;
+import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.ast.Operator;
+
+import java.util.*;
+
+import static pt.up.fe.comp2025.ast.Kind.*;
+
+/**
+ * Simplifies the expressions of a method with algebraic identities, in a single bottom-up pass over its AST.
+ * <p>
+ * Operations on literals are folded, identities such as x + 0, x * 1, x - x, !!b and b && true are removed, and chains
+ * of additions or multiplications by literals are reassociated into one operation (x + 1 + 2 becomes x + 3). Rules
+ * that drop an operand (x * 0, x - x, b || true) only apply when that operand has no side effects and cannot throw.
+ * Ifs and whiles whose condition became a literal are replaced by the statements they always run.
+ */
+public class AlgebraicSimplifier {
+
+    private int simplifiedExpressions;
+    private int prunedBranches;
+
+    public int getSimplifiedExpressions() {
+        return simplifiedExpressions;
+    }
+
+    public int getPrunedBranches() {
+        return prunedBranches;
+    }
+
+    public void optimize(JmmNode methodDecl) {
+        visit(methodDecl);
+    }
+
+    private void visit(JmmNode node) {
+        if (EXPR.check(node)) {
+            simplify(node);
+            return;
+        }
+
+        for (var child : List.copyOf(node.getChildren())) {
+            visit(child);
+        }
+
+        if (IF_STMT.check(node)) {
+            pruneIf(node);
+        } else if (WHILE_STMT.check(node) && isBoolean(node.getChild(0), false)) {
+            SparseConstantProp.replaceStatement(node, List.of());
+            prunedBranches++;
+        }
+    }
+
+    /**
+     * @return the expression left in the place of the given one
+     */
+    private JmmNode simplify(JmmNode expr) {
+        for (int i = 0; i < expr.getNumChildren(); i++) {
+            simplify(expr.getChild(i));
+        }
+        return rewrite(expr);
+    }
+
+    /**
+     * Applies the rules to an expression whose operands are already simplified.
+     */
+    private JmmNode rewrite(JmmNode expr) {
+        var simplified = switch (Kind.of(expr)) {
+            case PARENTHESIS_EXPR -> expr.getChild(0);
+            case NEGATION -> simplifyNegation(expr);
+            case BINARY_EXPR -> simplifyBinary(expr);
+            default -> expr;
+        };
+
+        if (simplified == expr) {
+            return expr;
+        }
+
+        if (!PARENTHESIS_EXPR.check(expr)) {
+            simplifiedExpressions++;
+        }
+        replace(expr, simplified);
+
+        // The replacement may be an operand that forms a new identity in its new place, e.g. in x - (y * 1 - x)
+        return rewrite(simplified);
+    }
+
+    private JmmNode simplifyNegation(JmmNode expr) {
+        var operand = expr.getChild(0);
+        if (BOOLEAN_EXPR.check(operand)) {
+            return SparseConstantProp.newLiteral(!Boolean.parseBoolean(operand.get("value")));
+        }
+        if (NEGATION.check(operand)) {
+            return operand.getChild(0);
+        }
+        return expr;
+    }
+
+    private JmmNode simplifyBinary(JmmNode expr) {
+        var op = Operator.of(expr);
+        var left = expr.getChild(0);
+        var right = expr.getChild(1);
+
+        if (isLiteral(left) && isLiteral(right)) {
+            var value = fold(op, left, right);
+            if (value != null) {
+                return SparseConstantProp.newLiteral(value);
+            }
+        }
+
+        return switch (op) {
+            case AND -> simplifyLogical(expr, left, right, true);
+            case OR -> simplifyLogical(expr, left, right, false);
+            case ADD, SUB -> simplifyAdditive(expr, op, left, right);
+            case MUL -> simplifyMultiplication(expr, left, right);
+            case DIV -> isInteger(right, 1) ? left : expr;
+            case LT, GT -> isPure(left) && isSame(left, right) ? SparseConstantProp.newLiteral(false) : expr;
+            default -> expr;
+        };
+    }
+
+    private static Object fold(Operator op, JmmNode left, JmmNode right) {
+        if (INTEGER_LITERAL.check(left) && INTEGER_LITERAL.check(right)) {
+            int leftValue = CompactAst.getIntValue(left);
+            int rightValue = CompactAst.getIntValue(right);
+            return switch (op) {
+                case ADD -> leftValue + rightValue;
+                case SUB -> leftValue - rightValue;
+                case MUL -> leftValue * rightValue;
+                // Division by zero is left to throw at runtime
+                case DIV -> rightValue == 0 ? null : leftValue / rightValue;
+                case LT -> leftValue < rightValue;
+                case GT -> leftValue > rightValue;
+                default -> null;
+            };
+        }
+
+        boolean leftValue = Boolean.parseBoolean(left.get("value"));
+        boolean rightValue = Boolean.parseBoolean(right.get("value"));
+        return switch (op) {
+            case AND -> leftValue && rightValue;
+            case OR -> leftValue || rightValue;
+            default -> null;
+        };
+    }
+
+    /**
+     * Simplifies a && b (isAnd) or a || b, where the identity is true for && and false for ||.
+     */
+    private static JmmNode simplifyLogical(JmmNode expr, JmmNode left, JmmNode right, boolean isAnd) {
+        // The right operand is not evaluated when the left one decides the result
+        if (isBoolean(left, isAnd)) {
+            return right;
+        }
+        if (isBoolean(left, !isAnd)) {
+            return left;
+        }
+
+        if (isBoolean(right, isAnd)) {
+            return left;
+        }
+        if (isBoolean(right, !isAnd) && isPure(left)) {
+            return right;
+        }
+        if (isPure(left) && isSame(left, right)) {
+            return left;
+        }
+        return expr;
+    }
+
+    private JmmNode simplifyAdditive(JmmNode expr, Operator op, JmmNode left, JmmNode right) {
+        if (op == Operator.ADD && INTEGER_LITERAL.check(left)) {
+            swapOperands(expr);
+            return simplifyAdditive(expr, op, right, left);
+        }
+
+        if (op == Operator.SUB && isPure(left) && isSame(left, right)) {
+            return SparseConstantProp.newLiteral(0);
+        }
+        if (!INTEGER_LITERAL.check(right)) {
+            return expr;
+        }
+
+        // x + c1 + c2 and the like become x + (c1 + c2), in 32-bit arithmetic like the operations they replace
+        var base = expr;
+        int constant = op == Operator.ADD ? CompactAst.getIntValue(right) : -CompactAst.getIntValue(right);
+        if (BINARY_EXPR.check(left) && INTEGER_LITERAL.check(left.getChild(1))
+                && (Operator.of(left) == Operator.ADD || Operator.of(left) == Operator.SUB)) {
+            int inner = CompactAst.getIntValue(left.getChild(1));
+            constant += Operator.of(left) == Operator.ADD ? inner : -inner;
+            base = left;
+        }
+
+        if (constant == 0) {
+            return base.getChild(0);
+        }
+        if (base == expr) {
+            return expr;
+        }
+
+        // The operation that is kept gets the combined literal, a negative one becoming a subtraction
+        boolean subtract = constant < 0 && constant != Integer.MIN_VALUE;
+        Operator.set(base, subtract ? Operator.SUB : Operator.ADD);
+        replace(base.getChild(1), SparseConstantProp.newLiteral(subtract ? -constant : constant));
+        return base;
+    }
+
+    private JmmNode simplifyMultiplication(JmmNode expr, JmmNode left, JmmNode right) {
+        if (INTEGER_LITERAL.check(left)) {
+            swapOperands(expr);
+            return simplifyMultiplication(expr, right, left);
+        }
+        if (!INTEGER_LITERAL.check(right)) {
+            return expr;
+        }
+
+        int constant = CompactAst.getIntValue(right);
+        if (constant == 1) {
+            return left;
+        }
+        if (constant == 0 && isPure(left)) {
+            return right;
+        }
+
+        // x * c1 * c2 becomes x * (c1 * c2)
+        if (BINARY_EXPR.check(left) && Operator.of(left) == Operator.MUL && INTEGER_LITERAL.check(left.getChild(1))) {
+            var product = CompactAst.getIntValue(left.getChild(1)) * constant;
+            replace(left.getChild(1), SparseConstantProp.newLiteral(product));
+            return left;
+        }
+        return expr;
+    }
+
+    private void pruneIf(JmmNode ifStmt) {
+        var arms = new ArrayList<JmmNode>();
+        JmmNode elseExpr = null;
+        for (var arm : ifStmt.getChildren()) {
+            if (ELSE_EXPR.check(arm)) {
+                elseExpr = arm;
+            } else {
+                arms.add(arm);
+            }
+        }
+
+        // Arms with a false condition are dropped, and one with a true condition becomes the else
+        var taken = new ArrayList<JmmNode>();
+        JmmNode elseStmt = elseExpr == null ? null : elseExpr.getChild(0);
+        for (var arm : arms) {
+            var condition = arm.getChild(0);
+            if (isBoolean(condition, false)) {
+                continue;
+            }
+            if (isBoolean(condition, true)) {
+                elseStmt = arm.getChild(1);
+                break;
+            }
+            taken.add(arm);
+        }
+
+        if (taken.size() == arms.size()) {
+            return;
+        }
+        prunedBranches++;
+
+        SparseConstantProp.pruneArms(ifStmt, arms, taken, elseExpr, elseStmt);
+    }
+
+    /**
+     * @return true if evaluating the expression has no side effects and cannot throw
+     */
+    private static boolean isPure(JmmNode expr) {
+        return switch (Kind.of(expr)) {
+            case INTEGER_LITERAL, BOOLEAN_EXPR, VAR_REF_EXPR, OBJECT_CALL_EXPR -> true;
+            case PARENTHESIS_EXPR, NEGATION -> isPure(expr.getChild(0));
+            case BINARY_EXPR -> Operator.of(expr) != Operator.DIV && isPure(expr.getChild(0)) && isPure(expr.getChild(1));
+            default -> false;
+        };
+    }
+
+    /**
+     * @return true if both expressions have the same structure, operators, names and literals
+     */
+    private static boolean isSame(JmmNode a, JmmNode b) {
+        var kind = Kind.of(a);
+        if (kind != Kind.of(b) || a.getNumChildren() != b.getNumChildren()) {
+            return false;
+        }
+
+        boolean sameNode = switch (kind) {
+            case INTEGER_LITERAL -> CompactAst.getIntValue(a) == CompactAst.getIntValue(b);
+            case BOOLEAN_EXPR -> a.get("value").equals(b.get("value"));
+            case VAR_REF_EXPR -> a.get("name").equals(b.get("name"));
+            case BINARY_EXPR -> Operator.of(a) == Operator.of(b);
+            case OBJECT_CALL_EXPR, PARENTHESIS_EXPR, NEGATION -> true;
+            default -> false;
+        };
+        if (!sameNode) {
+            return false;
+        }
+
+        for (int i = 0; i < a.getNumChildren(); i++) {
+            if (!isSame(a.getChild(i), b.getChild(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLiteral(JmmNode expr) {
+        return INTEGER_LITERAL.check(expr) || BOOLEAN_EXPR.check(expr);
+    }
+
+    private static boolean isInteger(JmmNode expr, int value) {
+        return INTEGER_LITERAL.check(expr) && CompactAst.getIntValue(expr) == value;
+    }
+
+    private static boolean isBoolean(JmmNode expr, boolean value) {
+        return BOOLEAN_EXPR.check(expr) && Boolean.parseBoolean(expr.get("value")) == value;
+    }
+
+    private static void swapOperands(JmmNode expr) {
+        var left = expr.removeChild(0);
+        expr.add(left);
+    }
+
+    /**
+     * Puts a node in the place of another, which may be one of its ancestors.
+     */
+    private static void replace(JmmNode node, JmmNode replacement) {
+        if (node == replacement) {
+            return;
+        }
+        SparseConstantProp.detach(replacement);
+        node.replace(replacement);
+    }
+}
@@ -0,0 +1,240 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+
+import java.util.*;
+
+/**
+ * Basic blocks of an OLLIR method and the edges between them.
+ * <p>
+ * Built from the list of instructions and the labels of the method, so it can be rebuilt after a pass adds or removes
+ * instructions (the successors kept by {@link Node} are only filled once, by {@link Method#buildCFG()}).
+ * <p>
+ * The entry block never has predecessors: when the first instruction is the target of a jump (e.g. a method that
+ * starts with a loop), an empty entry block is added before it.
+ */
+public class ControlFlowGraph {
+
+    public static class BasicBlock {
+
+        private final int index;
+        private final List<Instruction> instructions;
+        private final List<BasicBlock> predecessors;
+        private final List<BasicBlock> successors;
+
+        private BasicBlock(int index) {
+            this.index = index;
+            this.instructions = new ArrayList<>();
+            this.predecessors = new ArrayList<>();
+            this.successors = new ArrayList<>();
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public List<Instruction> getInstructions() {
+            return instructions;
+        }
+
+        public Instruction getFirst() {
+            return instructions.getFirst();
+        }
+
+        public Instruction getLast() {
+            return instructions.getLast();
+        }
+
+        /**
+         * A block reached by both edges of a branch appears twice.
+         */
+        public List<BasicBlock> getPredecessors() {
+            return predecessors;
+        }
+
+        public List<BasicBlock> getSuccessors() {
+            return successors;
+        }
+
+        @Override
+        public String toString() {
+            return "B" + index;
+        }
+    }
+
+    private final Method method;
+    private final List<BasicBlock> blocks;
+    private final Map<Instruction, BasicBlock> instructionBlocks;
+    private final List<BasicBlock> reversePostorder;
+    private final boolean[] reachable;
+
+    public ControlFlowGraph(Method method) {
+        this.method = method;
+        this.blocks = new ArrayList<>();
+        this.instructionBlocks = new HashMap<>();
+
+        buildBlocks();
+        buildEdges();
+
+        this.reachable = new boolean[blocks.size()];
+        this.reversePostorder = computeReversePostorder();
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the blocks in the order of their instructions, the first one being the entry
+     */
+    public List<BasicBlock> getBlocks() {
+        return blocks;
+    }
+
+    public Optional<BasicBlock> getEntry() {
+        return blocks.isEmpty() ? Optional.empty() : Optional.of(blocks.getFirst());
+    }
+
+    public BasicBlock getBlock(Instruction instruction) {
+        return instructionBlocks.get(instruction);
+    }
+
+    /**
+     * @return the blocks reachable from the entry, in reverse postorder
+     */
+    public List<BasicBlock> getReversePostorder() {
+        return reversePostorder;
+    }
+
+    public boolean isReachable(BasicBlock block) {
+        return reachable[block.getIndex()];
+    }
+
+    /**
+     * @return the instructions that can execute right after the given one
+     */
+    public List<Instruction> getSuccessors(Instruction instruction) {
+        var block = instructionBlocks.get(instruction);
+        var instructions = block.getInstructions();
+
+        if (instruction != block.getLast()) {
+            return List.of(instructions.get(instructions.indexOf(instruction) + 1));
+        }
+
+        var successors = new ArrayList<Instruction>(block.getSuccessors().size());
+        for (var successor : block.getSuccessors()) {
+            successors.add(successor.getFirst());
+        }
+        return successors;
+    }
+
+    /**
+     * Puts an instruction that is not a jump in the place of another in its block. The method itself is not changed.
+     */
+    public void replace(Instruction instruction, Instruction replacement) {
+        var block = instructionBlocks.remove(instruction);
+        block.instructions.set(block.instructions.indexOf(instruction), replacement);
+        instructionBlocks.put(replacement, block);
+    }
+
+    public static boolean isTerminator(Instruction instruction) {
+        return switch (instruction.getInstType()) {
+            case GOTO, BRANCH, RETURN -> true;
+            default -> false;
+        };
+    }
+
+    private void buildBlocks() {
+        var labelled = new HashSet<>(method.getLabels().values());
+
+        var instructions = method.getInstructions();
+        if (!instructions.isEmpty() && labelled.contains(instructions.getFirst())) {
+            blocks.add(new BasicBlock(0));
+        }
+
+        BasicBlock current = null;
+        for (var instruction : instructions) {
+            if (current == null || labelled.contains(instruction)) {
+                current = new BasicBlock(blocks.size());
+                blocks.add(current);
+            }
+
+            current.instructions.add(instruction);
+            instructionBlocks.put(instruction, current);
+
+            if (isTerminator(instruction)) {
+                current = null;
+            }
+        }
+    }
+
+    private void buildEdges() {
+        for (int i = 0; i < blocks.size(); i++) {
+            var block = blocks.get(i);
+            var last = block.getInstructions().isEmpty() ? null : block.getLast();
+
+            switch (last) {
+                case GotoInstruction gotoInstruction -> addEdge(block, getTarget(gotoInstruction.getLabel()));
+                case CondBranchInstruction branch -> {
+                    addEdge(block, getTarget(branch.getLabel()));
+                    if (i + 1 < blocks.size()) {
+                        addEdge(block, blocks.get(i + 1));
+                    }
+                }
+                case ReturnInstruction ignored -> {
+                }
+                case null, default -> {
+                    if (i + 1 < blocks.size()) {
+                        addEdge(block, blocks.get(i + 1));
+                    }
+                }
+            }
+        }
+    }
+
+    private BasicBlock getTarget(String label) {
+        return instructionBlocks.get(method.getLabels().get(label));
+    }
+
+    private static void addEdge(BasicBlock from, BasicBlock to) {
+        from.successors.add(to);
+        to.predecessors.add(from);
+    }
+
+    private List<BasicBlock> computeReversePostorder() {
+        var postorder = new ArrayList<BasicBlock>();
+        if (blocks.isEmpty()) {
+            return postorder;
+        }
+
+        // Iterative DFS, methods with long chains of blocks would overflow the stack
+        Deque<BasicBlock> stack = new ArrayDeque<>();
+        Deque<Integer> nextSuccessor = new ArrayDeque<>();
+
+        stack.push(blocks.getFirst());
+        nextSuccessor.push(0);
+        reachable[0] = true;
+
+        while (!stack.isEmpty()) {
+            var block = stack.peek();
+            int next = nextSuccessor.pop();
+
+            if (next < block.getSuccessors().size()) {
+                nextSuccessor.push(next + 1);
+                var successor = block.getSuccessors().get(next);
+                if (!reachable[successor.getIndex()]) {
+                    reachable[successor.getIndex()] = true;
+                    stack.push(successor);
+                    nextSuccessor.push(0);
+                }
+            } else {
+                stack.pop();
+                postorder.add(block);
+            }
+        }
+
+        Collections.reverse(postorder);
+        return postorder;
+    }
+}
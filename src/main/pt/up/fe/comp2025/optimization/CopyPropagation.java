@@ -0,0 +1,226 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+import pt.up.fe.comp2025.optimization.ControlFlowGraph.BasicBlock;
+
+import java.util.*;
+
+/**
+ * Removes the copies between variables of an OLLIR method.
+ * <p>
+ * Uses of the destination of a copy x := y are replaced by y wherever the copy is available, that is, when every path
+ * to the use goes through the copy and neither x nor y are assigned in between. The copies left without uses are then
+ * removed by {@link DeadCodeElimination}.
+ * <p>
+ * A temporary that is assigned and immediately copied to a variable, and not used anywhere else, is coalesced with it:
+ * the value is computed straight into the variable and the copy is removed.
+ */
+public class CopyPropagation {
+
+    private final Method method;
+
+    public CopyPropagation(Method method) {
+        this.method = method;
+    }
+
+    /**
+     * @return the number of uses replaced plus the number of temporaries coalesced
+     */
+    public int apply() {
+        int changes = 0;
+
+        // Replacing the source of a copy can make copies that follow it propagate further
+        int propagated;
+        do {
+            propagated = propagate();
+            changes += propagated;
+        } while (propagated > 0);
+
+        return changes + coalesce();
+    }
+
+    private int propagate() {
+        var cfg = new ControlFlowGraph(method);
+        var blocks = cfg.getReversePostorder();
+
+        var copies = new ArrayList<AssignInstruction>();
+        var copyIndexes = new HashMap<Instruction, Integer>();
+        var mentions = new HashMap<String, BitSet>();
+        for (var block : blocks) {
+            for (var instruction : block.getInstructions()) {
+                var copy = getCopySource(instruction);
+                if (copy.isEmpty()) {
+                    continue;
+                }
+
+                int index = copies.size();
+                copies.add((AssignInstruction) instruction);
+                copyIndexes.put(instruction, index);
+                mentions.computeIfAbsent(getDestName(instruction), key -> new BitSet()).set(index);
+                mentions.computeIfAbsent(copy.get().getName(), key -> new BitSet()).set(index);
+            }
+        }
+
+        if (copies.isEmpty()) {
+            return 0;
+        }
+
+        var availableIn = computeAvailableIn(cfg, copyIndexes, mentions, copies.size());
+
+        int replaced = 0;
+        for (var block : blocks) {
+            var available = availableIn.get(block);
+            for (var instruction : block.getInstructions()) {
+                for (var use : InstructionOperands.getUses(instruction, method)) {
+                    var candidates = mentions.get(use.getName());
+                    if (candidates == null) {
+                        continue;
+                    }
+
+                    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                        var copy = copies.get(i);
+                        if (available.get(i) && getDestName(copy).equals(use.getName())) {
+                            use.setName(getCopySource(copy).orElseThrow().getName());
+                            replaced++;
+                            break;
+                        }
+                    }
+                }
+
+                transfer(instruction, available, copyIndexes, mentions);
+            }
+        }
+
+        return replaced;
+    }
+
+    private Map<BasicBlock, BitSet> computeAvailableIn(ControlFlowGraph cfg, Map<Instruction, Integer> copyIndexes,
+                                                       Map<String, BitSet> mentions, int numCopies) {
+        var blocks = cfg.getReversePostorder();
+        var entry = blocks.getFirst();
+
+        var availableOut = new HashMap<BasicBlock, BitSet>();
+        for (var block : blocks) {
+            var out = new BitSet();
+            if (block != entry) {
+                out.set(0, numCopies);
+            }
+            availableOut.put(block, out);
+        }
+
+        var availableIn = new HashMap<BasicBlock, BitSet>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            for (var block : blocks) {
+                var in = new BitSet();
+                if (block != entry) {
+                    in.set(0, numCopies);
+                    for (var predecessor : block.getPredecessors()) {
+                        if (cfg.isReachable(predecessor)) {
+                            in.and(availableOut.get(predecessor));
+                        }
+                    }
+                }
+                availableIn.put(block, (BitSet) in.clone());
+
+                for (var instruction : block.getInstructions()) {
+                    transfer(instruction, in, copyIndexes, mentions);
+                }
+
+                if (!in.equals(availableOut.get(block))) {
+                    availableOut.put(block, in);
+                    changed = true;
+                }
+            }
+        }
+
+        return availableIn;
+    }
+
+    private void transfer(Instruction instruction, BitSet available, Map<Instruction, Integer> copyIndexes,
+                          Map<String, BitSet> mentions) {
+        var def = InstructionOperands.getDef(instruction, method);
+        if (def.isEmpty()) {
+            return;
+        }
+
+        var killed = mentions.get(def.get().getName());
+        if (killed != null) {
+            available.andNot(killed);
+        }
+
+        var index = copyIndexes.get(instruction);
+        if (index != null) {
+            available.set(index);
+        }
+    }
+
+    private int coalesce() {
+        var cfg = new ControlFlowGraph(method);
+
+        var uses = new HashMap<String, Integer>();
+        for (var instruction : method.getInstructions()) {
+            InstructionOperands.getUses(instruction, method).forEach(use -> uses.merge(use.getName(), 1, Integer::sum));
+        }
+        var defs = InstructionOperands.countDefs(method.getInstructions(), method);
+
+        var varTable = method.getVarTable();
+        var removed = new HashSet<Instruction>();
+        for (var block : cfg.getReversePostorder()) {
+            var instructions = block.getInstructions();
+            for (int i = 1; i < instructions.size(); i++) {
+                var copy = instructions.get(i);
+                var source = getCopySource(copy);
+                if (source.isEmpty()) {
+                    continue;
+                }
+
+                var temporary = source.get().getName();
+                var previous = instructions.get(i - 1);
+                if (removed.contains(previous)) {
+                    continue;
+                }
+
+                var previousDef = InstructionOperands.getDef(previous, method);
+                if (previousDef.isEmpty() || !previousDef.get().getName().equals(temporary)
+                        || uses.get(temporary) != 1 || defs.get(temporary) != 1
+                        || varTable.get(temporary).getScope() != VarScope.LOCAL) {
+                    continue;
+                }
+
+                var dest = getDestName(copy);
+                if (!varTable.get(dest).getVarType().toString().equals(varTable.get(temporary).getVarType().toString())) {
+                    continue;
+                }
+
+                previousDef.get().setName(dest);
+                removed.add(copy);
+            }
+        }
+
+        MethodInstructions.remove(method, removed);
+        return removed.size();
+    }
+
+    /**
+     * @return the variable copied by the instruction, if it is a copy between two different variables
+     */
+    private Optional<Operand> getCopySource(Instruction instruction) {
+        if (InstructionOperands.getDef(instruction, method).isEmpty()
+                || !(((AssignInstruction) instruction).getRhs() instanceof SingleOpInstruction single)
+                || single.getSingleOperand() instanceof ArrayOperand
+                || !InstructionOperands.isVariable(single.getSingleOperand(), method)) {
+            return Optional.empty();
+        }
+
+        var source = (Operand) single.getSingleOperand();
+        return source.getName().equals(getDestName(instruction)) ? Optional.empty() : Optional.of(source);
+    }
+
+    private static String getDestName(Instruction copy) {
+        return ((Operand) ((AssignInstruction) copy).getDest()).getName();
+    }
+}
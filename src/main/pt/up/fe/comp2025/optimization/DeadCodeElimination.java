@@ -0,0 +1,217 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+import pt.up.fe.comp2025.optimization.ControlFlowGraph.BasicBlock;
+
+import java.util.*;
+
+/**
+ * Removes the code of an OLLIR method that cannot change its result: blocks that are never reached, assignments
+ * without side effects whose value is never read, jumps to the next instruction, labels that are never targeted and
+ * the locals that are left without any occurrence.
+ * <p>
+ * Assignments that can throw (array accesses, divisions by a variable) or that have side effects (calls, object and
+ * array creation) are always kept, even when their value is dead.
+ */
+public class DeadCodeElimination {
+
+    private static final String THIS = "this";
+
+    private final Method method;
+
+    public DeadCodeElimination(Method method) {
+        this.method = method;
+    }
+
+    /**
+     * @return the number of instructions removed
+     */
+    public int apply() {
+        int before = method.getInstructions().size();
+
+        removeUnreachable();
+
+        // Removing a jump can make the assignments to its condition dead, and the other way around
+        boolean changed = true;
+        while (changed) {
+            changed = removeDeadAssignments() | removeRedundantJumps();
+        }
+        MethodInstructions.removeUnusedLabels(method);
+        removeUnusedLocals();
+
+        return before - method.getInstructions().size();
+    }
+
+    private void removeUnreachable() {
+        var cfg = new ControlFlowGraph(method);
+
+        var removed = new HashSet<Instruction>();
+        for (var block : cfg.getBlocks()) {
+            if (!cfg.isReachable(block)) {
+                removed.addAll(block.getInstructions());
+            }
+        }
+        MethodInstructions.remove(method, removed);
+    }
+
+    private boolean removeDeadAssignments() {
+        var cfg = new ControlFlowGraph(method);
+        var variables = new HashMap<String, Integer>();
+        var liveOut = computeLiveOut(cfg, variables);
+
+        var removed = new HashSet<Instruction>();
+        for (var block : cfg.getReversePostorder()) {
+            var live = (BitSet) liveOut.get(block).clone();
+
+            var instructions = block.getInstructions();
+            for (int i = instructions.size() - 1; i >= 0; i--) {
+                var instruction = instructions.get(i);
+                var def = InstructionOperands.getDef(instruction, method);
+
+                if (def.isPresent() && isRemovable(((AssignInstruction) instruction).getRhs())
+                        && (!live.get(variables.get(def.get().getName())) || isSelfMove((AssignInstruction) instruction))) {
+                    removed.add(instruction);
+                    continue;
+                }
+
+                def.ifPresent(operand -> live.clear(variables.get(operand.getName())));
+                for (var use : InstructionOperands.getUses(instruction, method)) {
+                    live.set(variables.get(use.getName()));
+                }
+            }
+        }
+
+        MethodInstructions.remove(method, removed);
+        return !removed.isEmpty();
+    }
+
+    private Map<BasicBlock, BitSet> computeLiveOut(ControlFlowGraph cfg, Map<String, Integer> variables) {
+        var blocks = cfg.getReversePostorder();
+        var uses = new HashMap<BasicBlock, BitSet>();
+        var defs = new HashMap<BasicBlock, BitSet>();
+
+        for (var block : blocks) {
+            var blockUses = new BitSet();
+            var blockDefs = new BitSet();
+            for (var instruction : block.getInstructions()) {
+                for (var use : InstructionOperands.getUses(instruction, method)) {
+                    int index = variables.computeIfAbsent(use.getName(), key -> variables.size());
+                    if (!blockDefs.get(index)) {
+                        blockUses.set(index);
+                    }
+                }
+                InstructionOperands.getDef(instruction, method).ifPresent(def ->
+                        blockDefs.set(variables.computeIfAbsent(def.getName(), key -> variables.size())));
+            }
+            uses.put(block, blockUses);
+            defs.put(block, blockDefs);
+        }
+
+        var liveIn = new HashMap<BasicBlock, BitSet>();
+        var liveOut = new HashMap<BasicBlock, BitSet>();
+        for (var block : blocks) {
+            liveIn.put(block, new BitSet());
+            liveOut.put(block, new BitSet());
+        }
+
+        // Blocks in postorder, so most successors are visited before their predecessors
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            for (int i = blocks.size() - 1; i >= 0; i--) {
+                var block = blocks.get(i);
+
+                var out = liveOut.get(block);
+                for (var successor : block.getSuccessors()) {
+                    out.or(liveIn.get(successor));
+                }
+
+                var in = (BitSet) out.clone();
+                in.andNot(defs.get(block));
+                in.or(uses.get(block));
+
+                if (!in.equals(liveIn.get(block))) {
+                    liveIn.put(block, in);
+                    changed = true;
+                }
+            }
+        }
+
+        return liveOut;
+    }
+
+    private static boolean isRemovable(Instruction value) {
+        return switch (value) {
+            case SingleOpInstruction single -> !(single.getSingleOperand() instanceof ArrayOperand);
+            case BinaryOpInstruction binary -> binary.getOperands().stream().noneMatch(ArrayOperand.class::isInstance)
+                    && !InstructionOperands.canDivideByZero(binary);
+            case UnaryOpInstruction unary -> !(unary.getOperand() instanceof ArrayOperand);
+            case GetFieldInstruction getField -> getField.getObject() instanceof Operand object
+                    && THIS.equals(object.getName());
+            default -> false;
+        };
+    }
+
+    private static boolean isSelfMove(AssignInstruction assign) {
+        return assign.getRhs() instanceof SingleOpInstruction single
+                && single.getSingleOperand() instanceof Operand source
+                && !(source instanceof ArrayOperand)
+                && !source.isLiteral()
+                && source.getName().equals(((Operand) assign.getDest()).getName());
+    }
+
+    private boolean removeRedundantJumps() {
+        var instructions = method.getInstructions();
+        var labels = method.getLabels();
+
+        var removed = new HashSet<Instruction>();
+        for (int i = 0; i + 1 < instructions.size(); i++) {
+            var instruction = instructions.get(i);
+            var label = MethodInstructions.getJumpLabel(instruction);
+            if (label.isEmpty() || labels.get(label.get()) != instructions.get(i + 1)) {
+                continue;
+            }
+
+            if (instruction instanceof GotoInstruction
+                    || instruction instanceof CondBranchInstruction branch && isRemovable(branch.getCondition())) {
+                removed.add(instruction);
+            }
+        }
+
+        MethodInstructions.remove(method, removed);
+        return !removed.isEmpty();
+    }
+
+    private void removeUnusedLocals() {
+        var referenced = new HashSet<String>();
+        for (var instruction : method.getInstructions()) {
+            InstructionOperands.getUses(instruction, method).forEach(use -> referenced.add(use.getName()));
+            InstructionOperands.getDef(instruction, method).ifPresent(def -> referenced.add(def.getName()));
+        }
+
+        var varTable = method.getVarTable();
+        varTable.entrySet().removeIf(entry -> entry.getValue().getScope() == VarScope.LOCAL
+                && !THIS.equals(entry.getKey())
+                && !referenced.contains(entry.getKey()));
+
+        // The locals keep their order but take the registers left free by the removed ones
+        int nextRegister = 0;
+        for (var entry : varTable.entrySet()) {
+            if (THIS.equals(entry.getKey()) || entry.getValue().getScope() == VarScope.PARAMETER) {
+                nextRegister = Math.max(nextRegister, entry.getValue().getVirtualReg() + 1);
+            }
+        }
+
+        var locals = varTable.entrySet().stream()
+                .filter(entry -> entry.getValue().getScope() == VarScope.LOCAL && !THIS.equals(entry.getKey()))
+                .map(Map.Entry::getValue)
+                .sorted(Comparator.comparingInt(Descriptor::getVirtualReg))
+                .toList();
+
+        for (var descriptor : locals) {
+            descriptor.setVirtualReg(nextRegister++);
+        }
+    }
+}
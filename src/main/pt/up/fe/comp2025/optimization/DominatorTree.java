@@ -0,0 +1,177 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp2025.optimization.ControlFlowGraph.BasicBlock;
+
+import java.util.*;
+
+/**
+ * Dominators and dominance frontiers of the reachable blocks of a {@link ControlFlowGraph}.
+ * <p>
+ * Immediate dominators are computed with the iterative algorithm of Cooper, Harvey and Kennedy, which converges in a
+ * couple of passes over the reverse postorder for the reducible graphs generated from Java--.
+ */
+public class DominatorTree {
+
+    private final ControlFlowGraph cfg;
+
+    // Indexed by block index; -1 for unreachable blocks, and the entry is its own immediate dominator
+    private final int[] idoms;
+    private final int[] postorderNumbers;
+
+    private final Map<BasicBlock, List<BasicBlock>> children;
+    private final Map<BasicBlock, Set<BasicBlock>> frontiers;
+
+    public DominatorTree(ControlFlowGraph cfg) {
+        this.cfg = cfg;
+
+        int numBlocks = cfg.getBlocks().size();
+        this.idoms = new int[numBlocks];
+        this.postorderNumbers = new int[numBlocks];
+        this.children = new HashMap<>();
+        this.frontiers = new HashMap<>();
+
+        computeImmediateDominators();
+        computeFrontiers();
+    }
+
+    public ControlFlowGraph getCfg() {
+        return cfg;
+    }
+
+    /**
+     * @return the immediate dominator of the block, or null for the entry and for unreachable blocks
+     */
+    public BasicBlock getImmediateDominator(BasicBlock block) {
+        int idom = idoms[block.getIndex()];
+        return idom < 0 || idom == block.getIndex() ? null : cfg.getBlocks().get(idom);
+    }
+
+    public List<BasicBlock> getChildren(BasicBlock block) {
+        return children.getOrDefault(block, List.of());
+    }
+
+    public Set<BasicBlock> getDominanceFrontier(BasicBlock block) {
+        return frontiers.getOrDefault(block, Set.of());
+    }
+
+    /**
+     * @return true if every path from the entry to b goes through a (a block dominates itself)
+     */
+    public boolean dominates(BasicBlock a, BasicBlock b) {
+        if (idoms[b.getIndex()] < 0) {
+            return false;
+        }
+
+        int current = b.getIndex();
+        while (true) {
+            if (current == a.getIndex()) {
+                return true;
+            }
+            int idom = idoms[current];
+            if (idom == current) {
+                return false;
+            }
+            current = idom;
+        }
+    }
+
+    /**
+     * @return the reachable blocks in a preorder of the tree, so every block comes after its dominators
+     */
+    public List<BasicBlock> getPreorder() {
+        var preorder = new ArrayList<BasicBlock>();
+        var entry = cfg.getEntry();
+        if (entry.isEmpty()) {
+            return preorder;
+        }
+
+        Deque<BasicBlock> stack = new ArrayDeque<>();
+        stack.push(entry.get());
+        while (!stack.isEmpty()) {
+            var block = stack.pop();
+            preorder.add(block);
+
+            var blockChildren = getChildren(block);
+            for (int i = blockChildren.size() - 1; i >= 0; i--) {
+                stack.push(blockChildren.get(i));
+            }
+        }
+        return preorder;
+    }
+
+    private void computeImmediateDominators() {
+        Arrays.fill(idoms, -1);
+
+        var reversePostorder = cfg.getReversePostorder();
+        if (reversePostorder.isEmpty()) {
+            return;
+        }
+
+        for (int i = 0; i < reversePostorder.size(); i++) {
+            postorderNumbers[reversePostorder.get(i).getIndex()] = reversePostorder.size() - 1 - i;
+        }
+
+        int entry = reversePostorder.getFirst().getIndex();
+        idoms[entry] = entry;
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            for (var block : reversePostorder.subList(1, reversePostorder.size())) {
+                int newIdom = -1;
+                for (var predecessor : block.getPredecessors()) {
+                    int pred = predecessor.getIndex();
+                    if (idoms[pred] < 0) {
+                        continue;
+                    }
+                    newIdom = newIdom < 0 ? pred : intersect(pred, newIdom);
+                }
+
+                if (idoms[block.getIndex()] != newIdom) {
+                    idoms[block.getIndex()] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+
+        // Children in reverse postorder, so the tree is walked in the order of the CFG
+        for (var block : reversePostorder.subList(1, reversePostorder.size())) {
+            children.computeIfAbsent(cfg.getBlocks().get(idoms[block.getIndex()]), key -> new ArrayList<>()).add(block);
+        }
+    }
+
+    private int intersect(int a, int b) {
+        while (a != b) {
+            while (postorderNumbers[a] < postorderNumbers[b]) {
+                a = idoms[a];
+            }
+            while (postorderNumbers[b] < postorderNumbers[a]) {
+                b = idoms[b];
+            }
+        }
+        return a;
+    }
+
+    private void computeFrontiers() {
+        for (var block : cfg.getReversePostorder()) {
+            var predecessors = block.getPredecessors();
+            if (predecessors.size() < 2) {
+                continue;
+            }
+
+            int idom = idoms[block.getIndex()];
+            for (var predecessor : predecessors) {
+                int runner = predecessor.getIndex();
+                if (idoms[runner] < 0) {
+                    continue;
+                }
+
+                while (runner != idom) {
+                    frontiers.computeIfAbsent(cfg.getBlocks().get(runner), key -> new LinkedHashSet<>()).add(block);
+                    runner = idoms[runner];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+import org.specs.comp.ollir.type.ClassKind;
+import org.specs.comp.ollir.type.ClassType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Variables read and written by OLLIR instructions.
+ * <p>
+ * Only locals and parameters are variables: 'this', fields, class names of static calls and literals are not.
+ */
+public class InstructionOperands {
+
+    private static final String THIS = "this";
+
+    /**
+     * @return the variables read by the instruction, including the array and indexes of an array store
+     */
+    public static List<Operand> getUses(Instruction instruction, Method method) {
+        var uses = new ArrayList<Operand>();
+        addUses(instruction, method, uses);
+        return uses;
+    }
+
+    /**
+     * @return the variable written by the instruction, which is only the destination of an assignment that is not an
+     * array store
+     */
+    public static Optional<Operand> getDef(Instruction instruction, Method method) {
+        if (instruction instanceof AssignInstruction assign
+                && !(assign.getDest() instanceof ArrayOperand)
+                && isVariable(assign.getDest(), method)) {
+            return Optional.of((Operand) assign.getDest());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return how many of the instructions write each variable, for the variables written at least once
+     */
+    public static Map<String, Integer> countDefs(List<Instruction> instructions, Method method) {
+        var defs = new HashMap<String, Integer>();
+        for (var instruction : instructions) {
+            getDef(instruction, method).ifPresent(def -> defs.merge(def.getName(), 1, Integer::sum));
+        }
+        return defs;
+    }
+
+    /**
+     * @return true if the operation is a division or remainder by anything other than a literal that is not 0
+     */
+    public static boolean canDivideByZero(BinaryOpInstruction binary) {
+        var opType = binary.getOperation().getOpType();
+        if (opType != OperationType.DIV && opType != OperationType.REM) {
+            return false;
+        }
+        return !(binary.getRightOperand() instanceof LiteralElement literal) || literal.getLiteral().equals("0");
+    }
+
+    public static boolean isVariable(Element element, Method method) {
+        if (!(element instanceof Operand operand) || element.isLiteral()) {
+            return false;
+        }
+
+        var name = operand.getName();
+        if (THIS.equals(name) || ClassType.is(operand.getType(), ClassKind.CLASS)) {
+            return false;
+        }
+
+        var descriptor = method.getVarTable().get(name);
+        return descriptor != null && descriptor.getScope() != VarScope.FIELD;
+    }
+
+    private static void addUses(Instruction instruction, Method method, List<Operand> uses) {
+        switch (instruction) {
+            case AssignInstruction assign -> {
+                addUses(assign.getRhs(), method, uses);
+                if (assign.getDest() instanceof ArrayOperand arrayDest) {
+                    addUse(arrayDest, method, uses);
+                }
+            }
+            case SingleOpInstruction single -> addUse(single.getSingleOperand(), method, uses);
+            case OpInstruction op -> op.getOperands().forEach(operand -> addUse(operand, method, uses));
+            case CondBranchInstruction branch -> addUses(branch.getCondition(), method, uses);
+            case NewInstruction newInstruction ->
+                    newInstruction.getArguments().forEach(argument -> addUse(argument, method, uses));
+            case CallInstruction call -> {
+                addUse(call.getCaller(), method, uses);
+                call.getArguments().forEach(argument -> addUse(argument, method, uses));
+            }
+            case ReturnInstruction ret -> ret.getOperand().ifPresent(operand -> addUse(operand, method, uses));
+            case PutFieldInstruction putField -> {
+                addUse(putField.getObject(), method, uses);
+                addUse(putField.getValue(), method, uses);
+            }
+            case GetFieldInstruction getField -> addUse(getField.getObject(), method, uses);
+            default -> {
+            }
+        }
+    }
+
+    private static void addUse(Element element, Method method, List<Operand> uses) {
+        if (isVariable(element, method)) {
+            uses.add((Operand) element);
+        }
+
+        if (element instanceof ArrayOperand arrayOperand) {
+            arrayOperand.getIndexOperands().forEach(index -> addUse(index, method, uses));
+        }
+    }
+}
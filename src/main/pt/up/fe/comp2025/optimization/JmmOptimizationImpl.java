@@ -2,13 +2,19 @@ package pt.up.fe.comp2025.optimization;
 
 import org.specs.comp.ollir.*;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class JmmOptimizationImpl implements JmmOptimization {
 
@@ -16,64 +22,108 @@ public class JmmOptimizationImpl implements JmmOptimization {
     public OllirResult toOllir(JmmSemanticsResult semanticsResult) {
 
         // Create visitor that will generate the OLLIR code
-        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
+        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable(), null,
+                ConfigOptions.getOptimize(semanticsResult.getConfig()));
 
         // Visit the AST and obtain OLLIR code
         var ollirCode = visitor.visit(semanticsResult.getRootNode());
 
         System.out.println("\nOLLIR:\n\n" + ollirCode);
 
-        return new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
+        return new OllirResult(semanticsResult, ollirCode, new ArrayList<>());
+    }
+
+    /**
+     * Generates the OLLIR code reusing the code of the methods in the cache, which is filled with the methods that
+     * are not there. Entries must be removed by the caller when the corresponding MethodDecl changes.
+     */
+    public OllirResult toOllir(JmmSemanticsResult semanticsResult, Map<JmmNode, String> methodCodeCache) {
+        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable(), methodCodeCache,
+                ConfigOptions.getOptimize(semanticsResult.getConfig()));
+        var ollirCode = visitor.visit(semanticsResult.getRootNode());
+
+        return new OllirResult(semanticsResult, ollirCode, new ArrayList<>());
     }
 
     @Override
     public JmmSemanticsResult optimize(JmmSemanticsResult semanticsResult) {
         var config = semanticsResult.getConfig();
-        if (config.containsKey("optimize") && config.get("optimize").equals("true")) {
+        if (ConfigOptions.getOptimize(config)) {
+            var constantProp = new SparseConstantProp(semanticsResult.getSymbolTable(), ConfigOptions.getExtra(config));
 
-        }
-        if (semanticsResult.getConfig().containsKey("optimize") && semanticsResult.getConfig().get("optimize").equals("true")) {
+            long start = System.nanoTime();
+            for (var method : semanticsResult.getRootNode().getDescendants(Kind.METHOD_DECL)) {
+                constantProp.optimize(method);
+            }
+            clearTypes(semanticsResult);
 
-            ConstantProp constantPropagation = new ConstantProp(semanticsResult.getSymbolTable());
-            ConstantFold constantFolding = new ConstantFold();
+            semanticsResult.getReports().add(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1, -1,
+                    String.format("Constant propagation: %d expressions and %d branches folded in %.3f ms",
+                            constantProp.getFoldedExpressions(), constantProp.getFoldedBranches(),
+                            (System.nanoTime() - start) / 1_000_000.0)));
 
-            if (semanticsResult.getConfig().containsKey("extra") && semanticsResult.getConfig().get("extra").equals("true")) {
-                constantPropagation.activateExtraOptimization();
-            }
+            var simplifier = new AlgebraicSimplifier();
 
-            do {
-                constantPropagation.visit(semanticsResult.getRootNode());
-                constantFolding.visit(semanticsResult.getRootNode());
-            }while(constantPropagation.getChanges() > 0 || constantFolding.getChanges() > 0);
+            start = System.nanoTime();
+            for (var method : semanticsResult.getRootNode().getDescendants(Kind.METHOD_DECL)) {
+                simplifier.optimize(method);
+            }
+            clearTypes(semanticsResult);
 
+            semanticsResult.getReports().add(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1, -1,
+                    String.format("Algebraic simplification: %d expressions simplified and %d branches pruned in %.3f ms",
+                            simplifier.getSimplifiedExpressions(), simplifier.getPrunedBranches(),
+                            (System.nanoTime() - start) / 1_000_000.0)));
         }
 
         return semanticsResult;
     }
 
+    /**
+     * Types of method calls depend on their parent, so the types of the nodes an AST pass moved must be computed again.
+     */
+    private static void clearTypes(JmmSemanticsResult semanticsResult) {
+        if (semanticsResult.getSymbolTable() instanceof JmmSymbolTable table) {
+            table.getTypeAttribution().clear();
+        }
+    }
+
     @Override
     public OllirResult optimize(OllirResult ollirResult) {
         var config = ollirResult.getConfig();
+        if (ConfigOptions.getOptimize(config) && ConfigOptions.getExtra(config)) {
+            inlineMethods(ollirResult);
+            optimizeMethods(ollirResult);
+        }
+
         if (config.containsKey("registerAllocation") && Integer.parseInt(ollirResult.getConfig().get("registerAllocation")) >= 0) {
             int numRegisters = Integer.parseInt(ollirResult.getConfig().get("registerAllocation"));
             ClassUnit classUnit = ollirResult.getOllirClass();
             classUnit.buildCFGs();
             classUnit.buildVarTables();
+
+            // Allocation only changes the method being allocated, so each one is handled in its own task
+            List<ForkJoinTask<RegisterAllocation>> allocationTasks = new ArrayList<>();
             for (Method method : classUnit.getMethods()) {
-                // Perform liveness analysis
-                LivenessAnalysis liveness = new LivenessAnalysis(method);
-                liveness.analyze();
+                allocationTasks.add(ForkJoinTask.adapt(() -> allocateRegisters(method)));
+            }
+            allocationTasks.forEach(ForkJoinPool.commonPool()::execute);
 
-                // Build and color interference graph
-                InterferenceGraph ig = new InterferenceGraph(method, liveness);
-                Map<String, Descriptor> newTable = ig.getNewTable();
+            // Results are published in declaration order, so the first failing method is always the same
+            for (var allocationTask : allocationTasks) {
+                RegisterAllocation allocation = allocationTask.join();
+                Method method = allocation.method();
 
-                if (numRegisters != 0 && ig.getConfigRegisters() > numRegisters) {
-                    throw new RuntimeException("Number of config registers requested is greater than the number of registers available: " + ig.getConfigRegisters() + " > " + numRegisters);
+                if (numRegisters != 0 && allocation.registers() > numRegisters) {
+                    throw new RuntimeException("Number of config registers requested is greater than the number of registers available: " + allocation.registers() + " > " + numRegisters);
                 }
 
                 // Update the table to the new one
-                method.getVarTable().putAll(newTable);
+                method.getVarTable().putAll(allocation.newTable());
+
+                ollirResult.getReports().add(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1, -1,
+                        String.format("Register allocation of '%s': %d registers in %.3f ms",
+                                method.getMethodName(), allocation.registers(), allocation.nanos() / 1_000_000.0)));
 
                 Map<String, Descriptor> table = method.getVarTable();
                 System.out.println("Var table after optimization:\n" + table);
@@ -82,5 +132,70 @@ public class JmmOptimizationImpl implements JmmOptimization {
         return ollirResult;
     }
 
+    private void inlineMethods(OllirResult ollirResult) {
+        long start = System.nanoTime();
+
+        // Inlining changes several methods at once, so it runs before the per-method tasks
+        var inlining = new MethodInlining(ollirResult.getOllirClass());
+        inlining.apply();
+
+        ollirResult.getReports().add(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1, -1,
+                String.format("Inlining: %d calls inlined and %d methods removed in %.3f ms",
+                        inlining.getInlinedCalls(), inlining.getRemovedMethods(),
+                        (System.nanoTime() - start) / 1_000_000.0)));
+    }
+
+    private void optimizeMethods(OllirResult ollirResult) {
+        List<ForkJoinTask<MethodOptimization>> optimizationTasks = new ArrayList<>();
+        for (Method method : ollirResult.getOllirClass().getMethods()) {
+            optimizationTasks.add(ForkJoinTask.adapt(() -> optimizeMethod(method)));
+        }
+        optimizationTasks.forEach(ForkJoinPool.commonPool()::execute);
+
+        for (var optimizationTask : optimizationTasks) {
+            MethodOptimization optimization = optimizationTask.join();
+            ollirResult.getReports().add(new Report(ReportType.LOG, Stage.OPTIMIZATION, -1, -1,
+                    String.format("Optimization of '%s': %d -> %d instructions in %.3f ms",
+                            optimization.method().getMethodName(), optimization.instructionsBefore(),
+                            optimization.instructionsAfter(), optimization.nanos() / 1_000_000.0)));
+        }
+    }
+
+    private record MethodOptimization(Method method, int instructionsBefore, int instructionsAfter, long nanos) {
+    }
+
+    private MethodOptimization optimizeMethod(Method method) {
+        long start = System.nanoTime();
+        int instructionsBefore = method.getInstructions().size();
+
+        new TailRecursion(method).apply();
+        new ValueNumbering(method).apply();
+        new LoopInvariantCodeMotion(method).apply();
+        new StrengthReduction(method).apply();
+        new CopyPropagation(method).apply();
+        new DeadCodeElimination(method).apply();
+
+        return new MethodOptimization(method, instructionsBefore, method.getInstructions().size(),
+                System.nanoTime() - start);
+    }
+
+    private record RegisterAllocation(Method method, Map<String, Descriptor> newTable, int registers, long nanos) {
+    }
+
+    private RegisterAllocation allocateRegisters(Method method) {
+        long start = System.nanoTime();
 
+        // Going through SSA splits the unrelated live ranges of each variable and coalesces the moves between variables
+        new SsaForm(method).destruct();
+
+        // Perform liveness analysis
+        LivenessAnalysis liveness = new LivenessAnalysis(method);
+        liveness.analyze();
+
+        // Build and color interference graph
+        InterferenceGraph ig = new InterferenceGraph(method, liveness);
+        Map<String, Descriptor> newTable = ig.getNewTable();
+
+        return new RegisterAllocation(method, newTable, ig.getConfigRegisters(), System.nanoTime() - start);
+    }
 }
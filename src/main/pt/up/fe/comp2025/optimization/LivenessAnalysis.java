@@ -8,6 +8,7 @@ import java.util.*;
 
 public class LivenessAnalysis {
     private Method method;
+    private final ControlFlowGraph cfg;
     private final Map<Node, List<Operand>> useLists;
     private final Map<Node, List<Operand>> defLists;
     private final Map<Node, List<Operand>> inLists;
@@ -15,6 +16,11 @@ public class LivenessAnalysis {
 
 
     public LivenessAnalysis(Method method) {
+        this(method, new ControlFlowGraph(method));
+    }
+
+    public LivenessAnalysis(Method method, ControlFlowGraph cfg) {
+        this.cfg = cfg;
         this.useLists = new HashMap<>();
         this.defLists = new HashMap<>();
         this.inLists = new HashMap<>();
@@ -43,12 +49,10 @@ public class LivenessAnalysis {
 
             for (Instruction instruction : instructions) {
                 Set<Operand> out = new HashSet<>();
-                for (Node succ : instruction.getSuccessors()) {
-                    if (succ != null && succ.getNodeType() != NodeType.END) { // skip END nodes
-                        List<Operand> succIn = inLists.get(succ);
-                        if (succIn != null) {
-                            out.addAll(succIn);
-                        }
+                for (Instruction succ : cfg.getSuccessors(instruction)) {
+                    List<Operand> succIn = inLists.get(succ);
+                    if (succIn != null) {
+                        out.addAll(succIn);
                     }
                 }
                 outLists.put(instruction, new ArrayList<>(out));
@@ -76,146 +80,14 @@ public class LivenessAnalysis {
 
     private void buildUseLists() {
         for (Instruction instruction : method.getInstructions()) {
-            List<Operand> use = processUse(instruction);
-            useLists.put(instruction, use);
-        }
-    }
-
-    private List<Operand> processUse(Instruction instruction) {
-        List<Operand> use = new ArrayList<>();
-        use = switch (instruction.getInstType()) {
-            case ASSIGN -> {
-                AssignInstruction assign = (AssignInstruction) instruction;
-                yield processAssign(assign);
-            }
-            case BINARYOPER -> {
-                BinaryOpInstruction binary = (BinaryOpInstruction) instruction;
-                yield processBinaryOper(binary);
-            }
-            case UNARYOPER -> {
-                UnaryOpInstruction unary = (UnaryOpInstruction) instruction;
-                yield processUnaryOper(unary);
-            }
-            case CALL -> {
-                CallInstruction call = (CallInstruction) instruction;
-                yield processCall(call);
-            }
-            case RETURN -> {
-                ReturnInstruction returnInstruction = (ReturnInstruction) instruction;
-                yield processReturn(returnInstruction);
-            }
-            case PUTFIELD -> {
-                PutFieldInstruction put = (PutFieldInstruction) instruction;
-                yield processPutField(put);
-            }
-            case GETFIELD -> {
-                GetFieldInstruction get = (GetFieldInstruction) instruction;
-                yield processGetField(get);
-            }
-            case BRANCH -> {
-                CondBranchInstruction branch = (CondBranchInstruction) instruction;
-                yield processCondBranch(branch);
-            }
-            case NOPER -> {
-                SingleOpInstruction single = (SingleOpInstruction) instruction;
-                yield processNoper(single);
-            }
-            default -> use;
-        };
-        return use;
-    }
-
-    private List<Operand> processAssign(AssignInstruction assign) {
-        return processUse(assign.getRhs());
-    }
-
-    private List<Operand> processBinaryOper(BinaryOpInstruction binary) {
-        List<Operand> operands = new ArrayList<>();
-        if (binary.getOperands() != null) {
-            for (Element operand : binary.getOperands()) {
-                if (operand instanceof Operand) operands.add((Operand) operand);
-            }
-        }
-        return operands;
-    }
-
-    private List<Operand> processUnaryOper(UnaryOpInstruction unary) {
-        List<Operand> operands = new ArrayList<>();
-        if (unary.getOperand() != null) {
-            if (unary.getOperand() instanceof Operand) operands.add((Operand) unary.getOperand());
-        }
-        return operands;
-    }
-
-    private List<Operand> processCall(CallInstruction call) {
-        List<Operand> operands = new ArrayList<>();
-        if (call.getOperands() != null) {
-            for (Element operand : call.getOperands()) {
-                if (operand instanceof Operand) operands.add((Operand) operand);
-            }
-        }
-        return operands;
-    }
-
-    private List<Operand> processReturn(ReturnInstruction returnInstruction) {
-        List<Operand> operands = new ArrayList<>();
-
-        if (returnInstruction.hasReturnValue()) {
-            var operand = returnInstruction.getOperand();
-            operand.ifPresent(element -> operands.add((Operand) element));
-        }
-        return operands;
-    }
-
-    private List<Operand> processPutField(PutFieldInstruction put) {
-        List<Operand> operands = new ArrayList<>();
-        if (put.getOperands() != null) {
-            for (Element operand : put.getOperands()) {
-                if (operand instanceof Operand) operands.add((Operand) operand);
-            }
-        }
-        return operands;
-    }
-
-    private List<Operand> processGetField(GetFieldInstruction get) {
-        List<Operand> operands = new ArrayList<>();
-        if (get.getOperands() != null) {
-            for (Element operand : get.getOperands()) {
-                if (operand instanceof Operand) operands.add((Operand) operand);
-            }
-        }
-        return operands;
-    }
-
-    private List<Operand> processCondBranch(CondBranchInstruction branch) {
-        List<Operand> operands = new ArrayList<>();
-        if (branch.getOperands() != null) {
-            for (Element operand : branch.getOperands()) {
-                if (operand instanceof Operand) operands.add((Operand) operand);
-            }
+            useLists.put(instruction, InstructionOperands.getUses(instruction, method));
         }
-        return operands;
     }
 
-    private List<Operand> processNoper(SingleOpInstruction single) {
-        List<Operand> operands = new ArrayList<>();
-        if (single.getSingleOperand() != null) {
-            if (single.getSingleOperand() instanceof Operand) operands.add((Operand) single.getSingleOperand());
-        }
-        return operands;
-    }
-
-
     private void buildDefLists() {
         for (Instruction instruction : method.getInstructions()) {
             List<Operand> operand = new ArrayList<>();
-            if (instruction.getInstType() == InstructionType.ASSIGN) {
-                AssignInstruction assign = (AssignInstruction) instruction;
-                Element element = assign.getDest();
-                if (element instanceof Operand op) {
-                    operand.add(op);
-                }
-            }
+            InstructionOperands.getDef(instruction, method).ifPresent(operand::add);
             defLists.put(instruction, operand);
         }
     }
@@ -0,0 +1,159 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+
+import java.util.*;
+
+/**
+ * Moves the assignments of a loop that compute the same value in every iteration to its preheader.
+ * <p>
+ * Only computations that cannot throw are moved, since the preheader also runs when the loop body does not: arithmetic
+ * without divisions by a variable, comparisons, negations, lengths of arrays that the loop does not reassign and that
+ * are known to be non-null when it starts and, in loops without putfield or calls, fields of 'this'. The destination must be assigned only once in the loop and must not
+ * be live when the loop starts, so every read of it in the loop and after it sees the value of that assignment.
+ * <p>
+ * Inner loops are handled first, so an assignment can move out of a whole nest of loops.
+ */
+public class LoopInvariantCodeMotion {
+
+    private static final String THIS = "this";
+
+    private final Method method;
+
+    public LoopInvariantCodeMotion(Method method) {
+        this.method = method;
+    }
+
+    /**
+     * @return the number of instructions moved out of loops
+     */
+    public int apply() {
+        int moved = 0;
+
+        // The graph changes with each preheader, so loops are found again until none of them has work left
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            var cfg = new ControlFlowGraph(method);
+            var liveness = new LivenessAnalysis(method, cfg);
+            liveness.analyze();
+
+            var dominatorTree = new DominatorTree(cfg);
+            for (var loop : NaturalLoop.find(dominatorTree)) {
+                var invariant = findInvariant(loop, liveness, dominatorTree);
+                if (!invariant.isEmpty()) {
+                    loop.moveToPreheader(method, invariant);
+                    moved += invariant.size();
+                    changed = true;
+                    break;
+                }
+            }
+        }
+
+        return moved;
+    }
+
+    private List<Instruction> findInvariant(NaturalLoop loop, LivenessAnalysis liveness, DominatorTree dominatorTree) {
+        var instructions = loop.getInstructions();
+
+        var defs = InstructionOperands.countDefs(instructions, method);
+        boolean writesMemory = false;
+        for (var instruction : instructions) {
+            writesMemory |= writesMemory(instruction);
+        }
+
+        var liveAtHeader = new HashSet<String>();
+        for (var operand : liveness.getInList(loop.getHeader().getFirst())) {
+            liveAtHeader.add(operand.getName());
+        }
+
+        var nonNull = getNonNullOnEntry(loop, dominatorTree);
+
+        // Each round finds the assignments whose operands became invariant in the previous ones
+        var invariant = new ArrayList<Instruction>();
+        var invariantNames = new HashSet<String>();
+        boolean found = true;
+        while (found) {
+            found = false;
+
+            for (var instruction : instructions) {
+                if (invariant.contains(instruction) || !(instruction instanceof AssignInstruction assign)) {
+                    continue;
+                }
+
+                var def = InstructionOperands.getDef(assign, method);
+                if (def.isEmpty() || defs.get(def.get().getName()) != 1 || liveAtHeader.contains(def.get().getName())
+                        || !isSafe(assign.getRhs(), writesMemory, nonNull)) {
+                    continue;
+                }
+
+                boolean operandsInvariant = InstructionOperands.getUses(assign, method).stream()
+                        .allMatch(use -> !defs.containsKey(use.getName()) || invariantNames.contains(use.getName()));
+                if (operandsInvariant) {
+                    invariant.add(assign);
+                    invariantNames.add(def.get().getName());
+                    found = true;
+                }
+            }
+        }
+
+        return invariant;
+    }
+
+    /**
+     * @return the locals that only ever hold new objects or arrays and are assigned before the loop on every path to it
+     */
+    private Set<String> getNonNullOnEntry(NaturalLoop loop, DominatorTree dominatorTree) {
+        var allocated = new HashSet<String>();
+        var notAllocated = new HashSet<String>();
+        var assignedBefore = new HashSet<String>();
+        for (var instruction : method.getInstructions()) {
+            var def = InstructionOperands.getDef(instruction, method);
+            if (def.isEmpty()) {
+                continue;
+            }
+
+            var name = def.get().getName();
+            if (!(instruction instanceof AssignInstruction assign && assign.getRhs() instanceof NewInstruction)) {
+                notAllocated.add(name);
+                continue;
+            }
+            allocated.add(name);
+
+            var block = dominatorTree.getCfg().getBlock(instruction);
+            if (!loop.contains(block) && dominatorTree.dominates(block, loop.getHeader())) {
+                assignedBefore.add(name);
+            }
+        }
+
+        // Parameters are not assigned in the method, so they are never in assignedBefore
+        allocated.removeAll(notAllocated);
+        allocated.retainAll(assignedBefore);
+        return allocated;
+    }
+
+    private static boolean writesMemory(Instruction instruction) {
+        return switch (instruction) {
+            case PutFieldInstruction ignored -> true;
+            case ArrayLengthInstruction ignored -> false;
+            case CallInstruction ignored -> true;
+            case AssignInstruction assign -> writesMemory(assign.getRhs());
+            default -> false;
+        };
+    }
+
+    private static boolean isSafe(Instruction rhs, boolean writesMemory, Set<String> nonNull) {
+        return switch (rhs) {
+            case BinaryOpInstruction binary -> binary.getOperands().stream().noneMatch(ArrayOperand.class::isInstance)
+                    && !InstructionOperands.canDivideByZero(binary);
+            case UnaryOpInstruction unary -> !(unary.getOperand() instanceof ArrayOperand);
+            case ArrayLengthInstruction arrayLength -> arrayLength.getCaller() instanceof Operand array
+                    && !(array instanceof ArrayOperand) && nonNull.contains(array.getName());
+            case GetFieldInstruction getField -> !writesMemory && getField.getObject() instanceof Operand object
+                    && THIS.equals(object.getName());
+            default -> false;
+        };
+    }
+}
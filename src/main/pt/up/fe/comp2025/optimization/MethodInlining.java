@@ -0,0 +1,335 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+import pt.up.fe.specs.util.SpecsCheck;
+
+import java.util.*;
+
+/**
+ * Replaces calls to methods of the class on 'this' with a copy of the body of the called method.
+ * <p>
+ * A method is inlined when it is small, or when it is not public and has a single call site, so its copy replaces it.
+ * Only methods that do not call other methods of the class on 'this' are inlined, and callers that end up in that
+ * situation are considered in the next round, so recursive methods are never expanded. Parameters and locals of the
+ * inlined method become new locals of the caller, its labels get new names and its returns become a copy to the
+ * destination of the call followed by a jump to the instruction after it.
+ * <p>
+ * Methods that are not public and are no longer called anywhere in the class are removed.
+ */
+public class MethodInlining {
+
+    private static final String THIS = "this";
+    private static final String PREFIX = "inline";
+
+    // Methods up to this size are inlined at every call site, larger ones only if they are called once
+    private static final int SMALL_METHOD_INSTRUCTIONS = 12;
+    private static final int SINGLE_CALL_METHOD_INSTRUCTIONS = 120;
+    private static final int MAX_CALLER_INSTRUCTIONS = 400;
+
+    private final ClassUnit classUnit;
+    private int inlinedCalls;
+    private int removedMethods;
+
+    public MethodInlining(ClassUnit classUnit) {
+        this.classUnit = classUnit;
+    }
+
+    public int getInlinedCalls() {
+        return inlinedCalls;
+    }
+
+    public int getRemovedMethods() {
+        return removedMethods;
+    }
+
+    public void apply() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            var methods = getMethodsByName();
+            var callCounts = countCalls();
+            for (var caller : classUnit.getMethods()) {
+                if (caller.isStaticMethod() || isLeaf(caller, methods)) {
+                    continue;
+                }
+
+                // Call sites are collected first, since inlining one of them moves the others in the list
+                for (var call : List.copyOf(caller.getInstructions())) {
+                    var callee = getCalledMethod(call, methods);
+                    if (callee.isEmpty() || callee.get() == caller || !isLeaf(callee.get(), methods)
+                            || !shouldInline(callee.get(), callCounts)
+                            || caller.getInstructions().size() + callee.get().getInstructions().size() > MAX_CALLER_INSTRUCTIONS) {
+                        continue;
+                    }
+
+                    inline(caller, call, callee.get());
+                    inlinedCalls++;
+                    changed = true;
+                }
+            }
+        }
+
+        removeUnusedMethods();
+    }
+
+    private Map<String, Method> getMethodsByName() {
+        var methods = new HashMap<String, Method>();
+        for (var method : classUnit.getMethods()) {
+            if (!method.isStaticMethod() && !method.isConstructMethod()) {
+                methods.put(method.getMethodName(), method);
+            }
+        }
+        return methods;
+    }
+
+    /**
+     * @return the number of invokevirtual instructions of the class that call each method name, on any object
+     */
+    private Map<String, Integer> countCalls() {
+        var callCounts = new HashMap<String, Integer>();
+        for (var method : classUnit.getMethods()) {
+            for (var instruction : method.getInstructions()) {
+                getInvokeVirtual(instruction).ifPresent(call ->
+                        callCounts.merge(getMethodName(call), 1, Integer::sum));
+            }
+        }
+        return callCounts;
+    }
+
+    private boolean shouldInline(Method callee, Map<String, Integer> callCounts) {
+        if (callee.isVarargs()) {
+            return false;
+        }
+
+        int size = callee.getInstructions().size();
+        return size <= SMALL_METHOD_INSTRUCTIONS || size <= SINGLE_CALL_METHOD_INSTRUCTIONS
+                && callee.getMethodAccessModifier() != AccessModifier.PUBLIC
+                && callCounts.getOrDefault(callee.getMethodName(), 0) == 1;
+    }
+
+    /**
+     * @return true if the method does not call methods of the class on 'this'
+     */
+    private boolean isLeaf(Method method, Map<String, Method> methods) {
+        return method.getInstructions().stream().allMatch(instruction -> getCalledMethod(instruction, methods).isEmpty());
+    }
+
+    private Optional<Method> getCalledMethod(Instruction instruction, Map<String, Method> methods) {
+        return getInvokeVirtual(instruction)
+                .filter(call -> call.getCaller() instanceof Operand caller && THIS.equals(caller.getName()))
+                .map(call -> methods.get(getMethodName(call)));
+    }
+
+    private static Optional<InvokeVirtualInstruction> getInvokeVirtual(Instruction instruction) {
+        return switch (instruction) {
+            case InvokeVirtualInstruction call -> Optional.of(call);
+            case AssignInstruction assign when assign.getRhs() instanceof InvokeVirtualInstruction call -> Optional.of(call);
+            default -> Optional.empty();
+        };
+    }
+
+    private static String getMethodName(CallInstruction call) {
+        return ((LiteralElement) call.getMethodName()).getLiteral();
+    }
+
+    private void inline(Method caller, Instruction call, Method callee) {
+        var invoke = getInvokeVirtual(call).orElseThrow();
+        var dest = call instanceof AssignInstruction assign ? Optional.of(assign.getDest()) : Optional.<Element>empty();
+
+        var instructions = caller.getInstructions();
+        var labels = caller.getLabels();
+        int index = instructions.indexOf(call);
+        SpecsCheck.checkArgument(index + 1 < instructions.size(), () -> "Call in method '" + caller.getMethodName() + "' is its last instruction");
+
+        var copier = new Copier(caller, callee, newPrefix(caller));
+
+        var inlined = new ArrayList<Instruction>();
+        var params = callee.getParams();
+        var args = invoke.getArguments();
+        for (int i = 0; i < params.size(); i++) {
+            var param = (Operand) params.get(i);
+            inlined.add(new AssignInstruction(copier.copy(param), param.getType(),
+                    new SingleOpInstruction(args.get(i))));
+        }
+
+        var endLabel = copier.newLabel("end");
+        var calleeInstructions = callee.getInstructions();
+        var firstCopies = new HashMap<Instruction, Instruction>();
+        for (int i = 0; i < calleeInstructions.size(); i++) {
+            var instruction = calleeInstructions.get(i);
+            int start = inlined.size();
+
+            if (instruction instanceof ReturnInstruction ret) {
+                if (ret.hasReturnValue() && dest.isPresent()) {
+                    inlined.add(new AssignInstruction(Copier.copyWithName(dest.get()), ((AssignInstruction) call).getTypeOfAssign(),
+                            new SingleOpInstruction(copier.copy(ret.getOperand().orElseThrow()))));
+                }
+                if (i + 1 < calleeInstructions.size()) {
+                    inlined.add(new GotoInstruction(endLabel));
+                }
+            } else {
+                inlined.add(copier.copy(instruction));
+            }
+
+            if (inlined.size() > start) {
+                firstCopies.put(instruction, inlined.get(start));
+            }
+        }
+
+        // A label of an instruction that left nothing behind, like a final void return, goes to the end
+        var next = instructions.get(index + 1);
+        for (var entry : callee.getLabels().entrySet()) {
+            labels.put(copier.getLabel(entry.getKey()), firstCopies.getOrDefault(entry.getValue(), next));
+        }
+        labels.put(endLabel, next);
+
+        instructions.remove(index);
+        instructions.addAll(index, inlined);
+        var first = inlined.isEmpty() ? next : inlined.getFirst();
+        labels.replaceAll((label, target) -> target == call ? first : target);
+    }
+
+    private static String newPrefix(Method caller) {
+        int suffix = 0;
+        while (hasPrefix(caller, PREFIX + suffix + "_")) {
+            suffix++;
+        }
+        return PREFIX + suffix + "_";
+    }
+
+    private static boolean hasPrefix(Method method, String prefix) {
+        return method.getVarTable().keySet().stream().anyMatch(name -> name.startsWith(prefix))
+                || method.getLabels().keySet().stream().anyMatch(label -> label.startsWith(prefix));
+    }
+
+    private void removeUnusedMethods() {
+        var callCounts = countCalls();
+        var methods = classUnit.getMethods();
+        int before = methods.size();
+
+        methods.removeIf(method -> !method.isStaticMethod() && !method.isConstructMethod()
+                && method.getMethodAccessModifier() != AccessModifier.PUBLIC
+                && !callCounts.containsKey(method.getMethodName()));
+        removedMethods = before - methods.size();
+    }
+
+    /**
+     * Copies instructions of a method into another, renaming its variables and labels with a prefix.
+     */
+    private static class Copier {
+
+        private final Method callee;
+        private final String prefix;
+        private final Map<String, String> names;
+
+        private Copier(Method caller, Method callee, String prefix) {
+            this.callee = callee;
+            this.prefix = prefix;
+            this.names = new HashMap<>();
+
+            var callerTable = caller.getVarTable();
+            int register = callerTable.values().stream().mapToInt(Descriptor::getVirtualReg).max().orElse(0) + 1;
+            for (var entry : callee.getVarTable().entrySet()) {
+                var scope = entry.getValue().getScope();
+                if (THIS.equals(entry.getKey()) || scope != VarScope.LOCAL && scope != VarScope.PARAMETER) {
+                    continue;
+                }
+
+                var name = prefix + entry.getKey();
+                names.put(entry.getKey(), name);
+                callerTable.put(name, new Descriptor(VarScope.LOCAL, register++, entry.getValue().getVarType()));
+            }
+        }
+
+        private String getLabel(String label) {
+            return prefix + label;
+        }
+
+        private String newLabel(String name) {
+            var label = prefix + name;
+            while (callee.getLabels().containsKey(name)) {
+                name = name + "_";
+                label = prefix + name;
+            }
+            return label;
+        }
+
+        private String rename(String name) {
+            return names.getOrDefault(name, name);
+        }
+
+        private Instruction copy(Instruction instruction) {
+            return switch (instruction) {
+                case AssignInstruction assign ->
+                        new AssignInstruction(copy(assign.getDest()), assign.getTypeOfAssign(), copy(assign.getRhs()));
+                case SingleOpInstruction single -> new SingleOpInstruction(copy(single.getSingleOperand()));
+                case BinaryOpInstruction binary -> new BinaryOpInstruction(copy(binary.getLeftOperand()),
+                        copy(binary.getOperation()), copy(binary.getRightOperand()));
+                case UnaryOpInstruction unary -> new UnaryOpInstruction(copy(unary.getOperation()), copy(unary.getOperand()));
+                case GetFieldInstruction getField ->
+                        new GetFieldInstruction((Operand) copy(getField.getObject()),
+                                (Operand) copyWithName(getField.getField()), getField.getFieldType());
+                case PutFieldInstruction putField -> new PutFieldInstruction((Operand) copy(putField.getObject()),
+                        (Operand) copyWithName(putField.getField()), copy(putField.getValue()), putField.getFieldType());
+                case InvokeVirtualInstruction call -> new InvokeVirtualInstruction(copy(call.getCaller()),
+                        copyWithName(call.getMethodName()), copyAll(call.getArguments()), call.getReturnType(),
+                        call.isIsolated());
+                case InvokeSpecialInstruction call -> new InvokeSpecialInstruction(copy(call.getCaller()),
+                        copyWithName(call.getMethodName()), call.getSuperClass().orElse(null), copyAll(call.getArguments()),
+                        call.getReturnType(), call.isIsolated());
+                // Class names are not variables, so they are kept as they are
+                case InvokeStaticInstruction call -> new InvokeStaticInstruction(copyWithName(call.getCaller()),
+                        copyWithName(call.getMethodName()), copyAll(call.getArguments()), call.getReturnType(),
+                        call.isIsolated());
+                case NewInstruction call -> new NewInstruction(copyWithName(call.getCaller()), copyAll(call.getArguments()),
+                        call.getReturnType(), call.isIsolated());
+                case ArrayLengthInstruction call -> new ArrayLengthInstruction(copy(call.getCaller()), call.getReturnType());
+                case LdcInstruction ldc -> new LdcInstruction((LiteralElement) copyWithName(ldc.getElement()));
+                case GotoInstruction gotoInstruction -> new GotoInstruction(getLabel(gotoInstruction.getLabel()));
+                case OpCondInstruction branch -> {
+                    var copy = new OpCondInstruction((OpInstruction) copy(branch.getCondition()));
+                    copy.setLabel(getLabel(branch.getLabel()));
+                    yield copy;
+                }
+                case SingleOpCondInstruction branch -> {
+                    var copy = new SingleOpCondInstruction((SingleOpInstruction) copy(branch.getCondition()));
+                    copy.setLabel(getLabel(branch.getLabel()));
+                    yield copy;
+                }
+                default -> throw new IllegalArgumentException("Cannot inline instruction " + instruction);
+            };
+        }
+
+        private Element copy(Element element) {
+            return switch (element) {
+                case ArrayOperand array -> new ArrayOperand(rename(array.getName()), array.getType(),
+                        copyAll(array.getIndexOperands()));
+                case Operand operand -> new Operand(rename(operand.getName()), operand.getType());
+                default -> copyWithName(element);
+            };
+        }
+
+        /**
+         * Copies an element that is not a variable of the inlined method, keeping its name.
+         */
+        private static Element copyWithName(Element element) {
+            return switch (element) {
+                case ArrayOperand array -> new ArrayOperand(array.getName(), array.getType(),
+                        array.getIndexOperands().stream().map(Copier::copyWithName).toList());
+                case Operand operand -> new Operand(operand.getName(), operand.getType());
+                case LiteralElement literal -> new LiteralElement(literal.getLiteral(), literal.getType());
+                default -> throw new IllegalArgumentException("Cannot inline element " + element);
+            };
+        }
+
+        private static Operation copy(Operation operation) {
+            return new Operation(operation.getOpType(), operation.getTypeInfo());
+        }
+
+        private List<Element> copyAll(List<Element> elements) {
+            return new ArrayList<>(elements.stream().map(this::copy).toList());
+        }
+    }
+}
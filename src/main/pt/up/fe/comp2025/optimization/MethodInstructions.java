@@ -0,0 +1,83 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.inst.CondBranchInstruction;
+import org.specs.comp.ollir.inst.GotoInstruction;
+import org.specs.comp.ollir.inst.Instruction;
+
+import java.util.*;
+
+/**
+ * Changes to the list of instructions of an OLLIR method that keep its labels pointing to the right instructions.
+ */
+public class MethodInstructions {
+
+    /**
+     * Removes the given instructions. Labels of a removed instruction move to the next instruction that is kept.
+     */
+    public static void remove(Method method, Set<Instruction> removed) {
+        if (removed.isEmpty()) {
+            return;
+        }
+
+        var instructions = new ArrayList<Instruction>(method.getInstructions().size());
+        var labelTargets = new HashMap<Instruction, Instruction>();
+        var pendingLabels = new ArrayList<Instruction>();
+
+        for (var instruction : method.getInstructions()) {
+            if (removed.contains(instruction)) {
+                pendingLabels.add(instruction);
+                continue;
+            }
+
+            for (var pending : pendingLabels) {
+                labelTargets.put(pending, instruction);
+            }
+            pendingLabels.clear();
+            instructions.add(instruction);
+        }
+
+        method.getInstructions().clear();
+        method.getInstructions().addAll(instructions);
+
+        var labels = method.getLabels();
+        labels.replaceAll((label, target) -> labelTargets.getOrDefault(target, target));
+        labels.values().removeIf(removed::contains);
+    }
+
+    /**
+     * Puts an instruction in the place of another, including as the target of its labels.
+     */
+    public static void replace(Method method, Instruction instruction, Instruction replacement) {
+        var instructions = method.getInstructions();
+        instructions.set(instructions.indexOf(instruction), replacement);
+        method.getLabels().replaceAll((label, target) -> target == instruction ? replacement : target);
+    }
+
+    /**
+     * Adds an instruction right after another, which must not be a jump or a return.
+     */
+    public static void insertAfter(Method method, Instruction instruction, Instruction inserted) {
+        var instructions = method.getInstructions();
+        instructions.add(instructions.indexOf(instruction) + 1, inserted);
+    }
+
+    /**
+     * Removes the labels that no instruction jumps to.
+     */
+    public static void removeUnusedLabels(Method method) {
+        var used = new HashSet<String>();
+        for (var instruction : method.getInstructions()) {
+            getJumpLabel(instruction).ifPresent(used::add);
+        }
+        method.getLabels().keySet().retainAll(used);
+    }
+
+    public static Optional<String> getJumpLabel(Instruction instruction) {
+        return switch (instruction) {
+            case GotoInstruction gotoInstruction -> Optional.of(gotoInstruction.getLabel());
+            case CondBranchInstruction branch -> Optional.of(branch.getLabel());
+            default -> Optional.empty();
+        };
+    }
+}
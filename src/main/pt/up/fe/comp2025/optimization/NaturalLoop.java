@@ -0,0 +1,174 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.inst.CondBranchInstruction;
+import org.specs.comp.ollir.inst.GotoInstruction;
+import org.specs.comp.ollir.inst.Instruction;
+import pt.up.fe.comp2025.optimization.ControlFlowGraph.BasicBlock;
+import pt.up.fe.specs.util.SpecsCheck;
+
+import java.util.*;
+
+/**
+ * Natural loop of a {@link ControlFlowGraph}: the header, which is the target of one or more back edges (edges to a
+ * block that dominates their source), and every block that can reach the source of a back edge without going through
+ * the header.
+ */
+public class NaturalLoop {
+
+    private static final String PREHEADER = "preheader";
+
+    private final ControlFlowGraph cfg;
+    private final BasicBlock header;
+    private final Set<BasicBlock> blocks;
+    private final List<BasicBlock> latches;
+
+    private NaturalLoop(ControlFlowGraph cfg, BasicBlock header) {
+        this.cfg = cfg;
+        this.header = header;
+        this.blocks = new LinkedHashSet<>();
+        this.latches = new ArrayList<>();
+    }
+
+    /**
+     * @return the loops of the graph, with the back edges to the same header merged in one loop, ordered so that
+     * inner loops come before the loops that contain them
+     */
+    public static List<NaturalLoop> find(DominatorTree dominatorTree) {
+        var cfg = dominatorTree.getCfg();
+        var loops = new LinkedHashMap<BasicBlock, NaturalLoop>();
+
+        for (var block : cfg.getReversePostorder()) {
+            for (var successor : block.getSuccessors()) {
+                if (dominatorTree.dominates(successor, block)) {
+                    var loop = loops.computeIfAbsent(successor, header -> new NaturalLoop(cfg, header));
+                    if (!loop.latches.contains(block)) {
+                        loop.latches.add(block);
+                    }
+                }
+            }
+        }
+
+        for (var loop : loops.values()) {
+            loop.collectBlocks();
+        }
+
+        var sorted = new ArrayList<>(loops.values());
+        sorted.sort(Comparator.comparingInt(loop -> loop.blocks.size()));
+        return sorted;
+    }
+
+    private void collectBlocks() {
+        blocks.add(header);
+
+        Deque<BasicBlock> worklist = new ArrayDeque<>();
+        for (var latch : latches) {
+            if (blocks.add(latch)) {
+                worklist.push(latch);
+            }
+        }
+
+        while (!worklist.isEmpty()) {
+            var block = worklist.pop();
+            for (var predecessor : block.getPredecessors()) {
+                if (cfg.isReachable(predecessor) && blocks.add(predecessor)) {
+                    worklist.push(predecessor);
+                }
+            }
+        }
+    }
+
+    public BasicBlock getHeader() {
+        return header;
+    }
+
+    public Set<BasicBlock> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return the blocks with a back edge to the header
+     */
+    public List<BasicBlock> getLatches() {
+        return latches;
+    }
+
+    public boolean contains(BasicBlock block) {
+        return blocks.contains(block);
+    }
+
+    /**
+     * @return the instructions of the loop, in the order of the method
+     */
+    public List<Instruction> getInstructions() {
+        var instructions = new ArrayList<Instruction>();
+        for (var block : cfg.getBlocks()) {
+            if (blocks.contains(block)) {
+                instructions.addAll(block.getInstructions());
+            }
+        }
+        return instructions;
+    }
+
+    /**
+     * Moves instructions of the method to a preheader of the loop, which runs once before the loop is entered.
+     * <p>
+     * The instructions are placed right before the header, so entering the loop by falling through goes through them,
+     * and jumps to the header from outside the loop are redirected to them. The back edges keep jumping to the header.
+     * The header must be the target of a label, and this graph is no longer valid afterwards.
+     */
+    public void moveToPreheader(Method method, List<Instruction> moved) {
+        if (moved.isEmpty()) {
+            return;
+        }
+
+        var labels = method.getLabels();
+        var headerLabels = new ArrayList<String>();
+        for (var entry : labels.entrySet()) {
+            if (entry.getValue() == header.getFirst()) {
+                headerLabels.add(entry.getKey());
+            }
+        }
+
+        SpecsCheck.checkArgument(!headerLabels.isEmpty(), () -> "Header of loop in method '" + method.getMethodName() + "' has no label");
+
+        var loopInstructions = Collections.newSetFromMap(new IdentityHashMap<Instruction, Boolean>());
+        loopInstructions.addAll(getInstructions());
+
+        // Labels of a moved instruction go to the instruction that followed it, so the header keeps its own
+        MethodInstructions.remove(method, new HashSet<>(moved));
+
+        var instructions = method.getInstructions();
+        instructions.addAll(instructions.indexOf(labels.get(headerLabels.getFirst())), moved);
+
+        int suffix = 0;
+        while (labels.containsKey(PREHEADER + suffix)) {
+            suffix++;
+        }
+        var preheaderLabel = PREHEADER + suffix;
+        boolean used = false;
+
+        for (var instruction : instructions) {
+            if (loopInstructions.contains(instruction)) {
+                continue;
+            }
+
+            switch (instruction) {
+                case GotoInstruction gotoInstruction when headerLabels.contains(gotoInstruction.getLabel()) -> {
+                    gotoInstruction.setLabel(preheaderLabel);
+                    used = true;
+                }
+                case CondBranchInstruction branch when headerLabels.contains(branch.getLabel()) -> {
+                    branch.setLabel(preheaderLabel);
+                    used = true;
+                }
+                default -> {
+                }
+            }
+        }
+
+        if (used) {
+            labels.put(preheaderLabel, moved.getFirst());
+        }
+    }
+}
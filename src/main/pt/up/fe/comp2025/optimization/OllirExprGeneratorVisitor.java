@@ -26,10 +26,56 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     private final TypeUtils types;
     private final OptUtils ollirTypes;
 
+    // When false, only arithmetic and comparisons are written straight into the destination of an assignment
+    private final boolean targetDestinations;
+
+    // Expression being assigned by the statement being generated, and the variable it is assigned to
+    private JmmNode targetNode;
+    private String targetCode;
+
     public OllirExprGeneratorVisitor(SymbolTable table, OptUtils ollirTypes, TypeUtils types) {
+        this(table, ollirTypes, types, false);
+    }
+
+    public OllirExprGeneratorVisitor(SymbolTable table, OptUtils ollirTypes, TypeUtils types, boolean targetDestinations) {
         this.table = table;
         this.types = types; // OK to keep this private
         this.ollirTypes = ollirTypes;      // Use the passed-in instance
+        this.targetDestinations = targetDestinations;
+    }
+
+    /**
+     * Visits an expression that is assigned to a local variable, computing its value straight into that variable
+     * instead of a temporary when possible.
+     *
+     * @param dest the code of the variable, with its type
+     */
+    public OllirExprResult visitInto(JmmNode expr, String dest) {
+        var node = expr;
+        while (PARENTHESIS_EXPR.check(node)) {
+            node = node.getChild(0);
+        }
+
+        targetNode = node;
+        targetCode = dest;
+        try {
+            return visit(expr);
+        } finally {
+            targetNode = null;
+            targetCode = null;
+        }
+    }
+
+    /**
+     * @return the code of the variable that holds the result of the node, which is the destination given to
+     * {@link #visitInto} when the node is the expression assigned to it, or a new temporary otherwise
+     */
+    private String nextResult(JmmNode node, String prefix, String ollirType) {
+        boolean canTarget = targetDestinations || BINARY_EXPR.check(node) && !node.get("op").equals("&&");
+        if (node == targetNode && canTarget) {
+            return targetCode;
+        }
+        return ollirTypes.nextTemp(prefix) + ollirType;
     }
 
 
@@ -76,12 +122,12 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         StringBuilder computation = new StringBuilder();
         StringBuilder code = new StringBuilder();
         var nextNode = visit(node.getChild(0));
-        var temp = ollirTypes.nextTemp();
         Type type = types.getExprType(node);
         String typeString = ollirTypes.toOllirType(type);
+        var result = nextResult(node, "tmp", typeString);
         computation.append(nextNode.getComputation());
-        code.append(temp + typeString);
-        computation.append(temp + typeString + SPACE + ASSIGN + typeString + SPACE + "!" + typeString + SPACE + nextNode.getCode() + END_STMT);
+        code.append(result);
+        computation.append(result + SPACE + ASSIGN + typeString + SPACE + "!" + typeString + SPACE + nextNode.getCode() + END_STMT);
         return new OllirExprResult(code.toString(), computation.toString());
     }
 
@@ -115,7 +161,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
             StringBuilder code = new StringBuilder();
             computation.append(NL);
             String thenTemp = ollirTypes.nextTemp("then");
-            String andTemp = ollirTypes.nextTemp("andTmp");
+            String andTemp = nextResult(node, "andTmp", ".bool");
             String endifTemp = ollirTypes.nextTemp("endif");
 
             computation.append(leftExprResult.getComputation());
@@ -125,7 +171,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
                     .append(thenTemp)
                     .append(END_STMT);
 
-            computation.append(andTemp + ".bool ")
+            computation.append(andTemp + SPACE)
                     .append(ASSIGN)
                     .append(".bool ")
                     .append("0.bool")
@@ -142,7 +188,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
             computation.append(NL);
 
-            computation.append(andTemp + ".bool ")
+            computation.append(andTemp + SPACE)
                     .append(ASSIGN)
                     .append(".bool ")
                     .append(rightExprResult.getCode())
@@ -150,7 +196,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
             computation.append(endifTemp).append(":").append("\n");
 
-            code.append(andTemp).append(".bool");
+            code.append(andTemp);
 
             return new OllirExprResult(code.toString(), computation.toString());
         }
@@ -162,12 +208,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         // code to compute self
         Type resType = types.getExprType(node);
         String resOllirType = ollirTypes.toOllirType(resType);
-        String code;
-        if (node.getParent().getKind().equals("AssignStmt")) {
-            code = node.getParent().getChild(0).get("name") + resOllirType;
-        } else {
-            code = ollirTypes.nextTemp() + resOllirType;
-        }
+        String code = nextResult(node, "tmp", resOllirType);
 
         computation.append(code).append(SPACE)
                 .append(ASSIGN).append(resOllirType).append(SPACE)
@@ -188,9 +229,9 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         Type type = types.getExprType(node);
         String ollirType = ollirTypes.toOllirType(type);
         if (ollirTypes.checkIfField(id, node, table)){
-            var temp = ollirTypes.nextTemp();
-            computation.append( temp + ollirType + SPACE + ASSIGN + ollirType + SPACE + "getfield(this, " + id + ollirType + ")" + ollirType + END_STMT);
-            code.append(temp + ollirType);
+            var result = nextResult(node, "tmp", ollirType);
+            computation.append( result + SPACE + ASSIGN + ollirType + SPACE + "getfield(this, " + id + ollirType + ")" + ollirType + END_STMT);
+            code.append(result);
         }
         else {
 
@@ -227,7 +268,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         // Generate temp variable for non-void methods
         String resultVar = "";
         if (!returnType.getName().equals("void")) {
-            resultVar = ollirTypes.nextTemp() + ollirReturnType;
+            resultVar = nextResult(node, "tmp", ollirReturnType);
             computation.append(resultVar).append(ASSIGN).append(ollirReturnType).append(" ");
         }
         if (isStaticCall) {
@@ -257,7 +298,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     }
 
     private boolean isStaticMethodCall(JmmNode receiverNode) {
-        if (receiverNode.getKind().equals("VarRefExpr")) {
+        if (VAR_REF_EXPR.check(receiverNode)) {
             String receiverName = receiverNode.get("name");
             return Character.isUpperCase(receiverName.charAt(0)) || types.hasImport(receiverName);
         }
@@ -272,7 +313,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         computation.append(sizeResult.getComputation());
 
         // Generate array creation code
-        String tempVar = ollirTypes.nextTemp() + ".array.i32";
+        String tempVar = nextResult(node, "tmp", ".array.i32");
         computation.append(tempVar)
                 .append(" :=.array.i32 new(array, ")
                 .append(sizeResult.getCode())
@@ -292,7 +333,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         computation.append(variableResult.getComputation());
 
         // Generate array creation code
-        String tempVar = ollirTypes.nextTemp() + ".i32";
+        String tempVar = nextResult(node, "tmp", ".i32");
         computation.append(tempVar)
                 .append(" :=.i32 arraylength(" + variableResult.getCode() + ").i32")
                 .append(END_STMT);
@@ -322,13 +363,13 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         OllirExprResult lhs = visit(node.getChild(0));
         OllirExprResult rhs = visit(node.getChild(1));
 
-        String tempVar = ollirTypes.nextTemp();
         Type type = types.getExprType(node);
         String nodeType = ollirTypes.toOllirType(type);
+        String tempVar = nextResult(node, "tmp", nodeType);
         computation.append(lhs.getComputation());
         computation.append(rhs.getComputation());
-        computation.append(tempVar + nodeType + SPACE + ASSIGN + nodeType + SPACE + lhs.getCode() + "[" + rhs.getCode() + "]" + nodeType + END_STMT);
-        code.append(tempVar+nodeType);
+        computation.append(tempVar + SPACE + ASSIGN + nodeType + SPACE + lhs.getCode() + "[" + rhs.getCode() + "]" + nodeType + END_STMT);
+        code.append(tempVar);
 
         return new OllirExprResult(code.toString(), computation.toString());
     }
@@ -337,12 +378,12 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         StringBuilder code = new StringBuilder();
         StringBuilder computation = new StringBuilder();
 
-        String tempVar = ollirTypes.nextTemp();
         Type type = types.getExprType(node);
         String nodeType = ollirTypes.toOllirType(type);
-        computation.append(tempVar + nodeType + SPACE + ASSIGN + nodeType + SPACE + "new(" + node.get("name") + ")" + nodeType + END_STMT);
-        computation.append("invokespecial(" + tempVar + nodeType + ", \"<init>\").V" + END_STMT);
-        code.append(tempVar + nodeType);
+        String tempVar = nextResult(node, "tmp", nodeType);
+        computation.append(tempVar + SPACE + ASSIGN + nodeType + SPACE + "new(" + node.get("name") + ")" + nodeType + END_STMT);
+        computation.append("invokespecial(" + tempVar + ", \"<init>\").V" + END_STMT);
+        code.append(tempVar);
         return new OllirExprResult(code.toString(), computation.toString());
     }
 
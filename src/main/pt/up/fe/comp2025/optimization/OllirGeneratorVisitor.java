@@ -8,6 +8,7 @@ import pt.up.fe.comp2025.ast.TypeUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static pt.up.fe.comp2025.ast.Kind.*;
@@ -33,11 +34,30 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private final OllirExprGeneratorVisitor exprVisitor;
 
+    // Code of each MethodDecl, reused between generations of the same AST (null when not caching)
+    private final Map<JmmNode, String> methodCodeCache;
+
+    private final boolean targetDestinations;
+
     public OllirGeneratorVisitor(SymbolTable table) {
+        this(table, null);
+    }
+
+    public OllirGeneratorVisitor(SymbolTable table, Map<JmmNode, String> methodCodeCache) {
+        this(table, methodCodeCache, false);
+    }
+
+    /**
+     * @param targetDestinations if true, every expression assigned to a local is computed straight into it when
+     *                           possible, instead of into a temporary that is then copied
+     */
+    public OllirGeneratorVisitor(SymbolTable table, Map<JmmNode, String> methodCodeCache, boolean targetDestinations) {
         this.table = table;
         this.types = new TypeUtils(table);
         this.ollirTypes = new OptUtils(types);
-        exprVisitor = new OllirExprGeneratorVisitor(table, ollirTypes, types);
+        exprVisitor = new OllirExprGeneratorVisitor(table, ollirTypes, types, targetDestinations);
+        this.methodCodeCache = methodCodeCache;
+        this.targetDestinations = targetDestinations;
     }
 
 
@@ -62,19 +82,22 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private String visitAssignStmt(JmmNode node, Void unused) {
 
+        // statement has type of lhs
+        var left = node.getChild(0);
+        Type thisType = types.getExprType(left);
+        String typeString = ollirTypes.toOllirType(thisType);
+        boolean isField = ollirTypes.checkIfField(left.get("name"), node, table);
 
-        var rhs = exprVisitor.visit(node.getChild(1));
+        var rhs = isField ?
+                exprVisitor.visit(node.getChild(1)) :
+                exprVisitor.visitInto(node.getChild(1), left.get("name") + typeString);
 
         StringBuilder code = new StringBuilder();
         // code to compute the children
         code.append(rhs.getComputation());
 
         // code to compute self
-        // statement has type of lhs
-        var left = node.getChild(0);
-        Type thisType = types.getExprType(left);
-        String typeString = ollirTypes.toOllirType(thisType);
-        if (ollirTypes.checkIfField(left.get("name"), node, table)) {
+        if (isField) {
             code.append("putfield(this, " + left.get("name") + typeString + ", " + rhs.getCode() + ")" + ".V" + END_STMT);
         }else {
             var varCode = left.get("name") + typeString;
@@ -188,7 +211,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         StringBuilder code = new StringBuilder();
         var parentNode = node.getParent();
         var varName = node.get("name");
-        if (parentNode.getKind().equals("ClassDecl")){
+        if (CLASS_DECL.check(parentNode)){
             code.append(".field public " + varName);
             for (var field : table.getFields()) {
                 if (varName.equals(field.getName())) {
@@ -226,7 +249,9 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append(NL);
 
         for (var child : node.getChildren(METHOD_DECL)) {
-            var result = visit(child);
+            var result = methodCodeCache != null ?
+                    methodCodeCache.computeIfAbsent(child, this::generateMethod) :
+                    visit(child);
             code.append(result);
         }
 
@@ -235,6 +260,14 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         return code.toString();
     }
 
+    /**
+     * Generates a method with its own visitor, so the names of its temporaries and labels do not depend on the
+     * methods generated before it.
+     */
+    private String generateMethod(JmmNode methodDecl) {
+        return new OllirGeneratorVisitor(table, null, targetDestinations).visit(methodDecl);
+    }
+
     private String visitImport(JmmNode node, Void unused) {
 
         StringBuilder code = new StringBuilder();
@@ -325,7 +358,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         while (true) {
             countElseIfs++;
             var elseIfExpr = node.getChild(countElseIfs);
-            if (elseIfExpr.getKind().equals("ElseifExpr")) {
+            if (ELSEIF_EXPR.check(elseIfExpr)) {
                 thenTemps.add(ollirTypes.nextTemp("then"));
                 endifTemps.add(ollirTypes.nextTemp("endif"));
                 var elseIfExprResult = exprVisitor.visit(elseIfExpr);
@@ -3,7 +3,10 @@ package pt.up.fe.comp2025.optimization;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.ast.Kind;
 import pt.up.fe.comp2025.ast.TypeUtils;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2025.symboltable.ResolvedSymbol;
 import pt.up.fe.specs.util.collections.AccumulatorMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
@@ -60,7 +63,7 @@ public class OptUtils {
 
     public String getMethodName(JmmNode node) {
         var parent = node.getParent();
-        while (parent != null && !parent.getKind().equals("MethodDecl")) {
+        while (parent != null && !Kind.METHOD_DECL.check(parent)) {
             parent = parent.getParent();
         }
         return parent.get("name");
@@ -90,21 +93,8 @@ public class OptUtils {
 
     public boolean checkIfField(String variable, JmmNode node, SymbolTable table) {
         var methodName = getMethodName(node);
-        for (var param : table.getParameters(methodName)) {
-            if (param.getName().equals(variable)) {
-                return false;
-            }
-        }
-        for (var localVariable : table.getLocalVariables(methodName)) {
-            if (localVariable.getName().equals(variable)) {
-                return false;
-            }
-        }
-        for (var field : table.getFields()) {
-            if (field.getName().equals(variable)) {
-                return true;
-            }
-        }
-        return false;
+        return ((JmmSymbolTable) table).resolve(methodName, variable)
+                .map(ResolvedSymbol::isField)
+                .orElse(false);
     }
 }
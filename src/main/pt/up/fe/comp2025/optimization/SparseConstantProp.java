@@ -0,0 +1,562 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2025.ast.CompactAst;
+import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.ast.Operator;
+
+import java.util.*;
+
+import static pt.up.fe.comp2025.ast.Kind.*;
+
+/**
+ * Sparse conditional constant propagation (Wegman and Zadeck) over the statements of a method.
+ * <p>
+ * The AST is not in SSA form, so values flow along the edges of a control flow graph of the statements instead of
+ * def-use chains, each node keeping a lattice value per int and boolean variable of the method. Only the edges that a
+ * condition can take are followed, which is what finds the constants of loops and of branches that are never taken.
+ * Once the values are stable, constant expressions become literals and branches with a constant condition are
+ * replaced by the statements they always run.
+ */
+public class SparseConstantProp {
+
+    // Lattice values besides the Integer and Boolean constants
+    private static final Object TOP = new Object();
+    private static final Object BOTTOM = new Object();
+
+    private static class FlowNode {
+
+        // Statement, or the IfExpr/ElseifExpr/WhileStmt of a condition; null for the entry and the exit
+        private final JmmNode node;
+        private final boolean condition;
+
+        // The successor of a condition taken when it is true comes first
+        private final List<FlowNode> successors;
+        private final List<FlowNode> predecessors;
+        private final BitSet executable;
+
+        private Object[] in;
+        private Object[] out;
+        private boolean queued;
+
+        private FlowNode(JmmNode node, boolean condition) {
+            this.node = node;
+            this.condition = condition;
+            this.successors = new ArrayList<>(2);
+            this.predecessors = new ArrayList<>(2);
+            this.executable = new BitSet(2);
+        }
+
+        private boolean isReached() {
+            return in != null;
+        }
+    }
+
+    private final SymbolTable table;
+    private final boolean removeDeadAssignments;
+
+    private Map<String, Integer> variables;
+    private List<FlowNode> nodes;
+    private Map<JmmNode, FlowNode> branches;
+    private FlowNode exit;
+
+    private int foldedExpressions;
+    private int foldedBranches;
+
+    public SparseConstantProp(SymbolTable table, boolean removeDeadAssignments) {
+        this.table = table;
+        this.removeDeadAssignments = removeDeadAssignments;
+    }
+
+    public int getFoldedExpressions() {
+        return foldedExpressions;
+    }
+
+    public int getFoldedBranches() {
+        return foldedBranches;
+    }
+
+    /**
+     * Methods with statements that are not supported (for loops and increments) are left unchanged.
+     */
+    public void optimize(JmmNode methodDecl) {
+        if (!methodDecl.getDescendants(FOR_STMT).isEmpty() || !methodDecl.getDescendants(INCREMENT_EXPR).isEmpty()) {
+            return;
+        }
+
+        variables = collectVariables(methodDecl.get("name"));
+        nodes = new ArrayList<>();
+        branches = new HashMap<>();
+        exit = newNode(null, false);
+
+        var body = methodDecl.getChildren().stream()
+                .filter(child -> !PARAM.check(child) && !TYPE.check(child))
+                .toList();
+        var entry = newNode(null, false);
+        entry.successors.add(buildSequence(body, exit));
+
+        for (var node : nodes) {
+            for (var successor : node.successors) {
+                successor.predecessors.add(node);
+            }
+        }
+
+        propagate(entry);
+
+        for (var node : nodes) {
+            if (node.isReached() && node.node != null) {
+                foldExpressions(node);
+            }
+        }
+        for (var node : nodes) {
+            if (node.isReached() && node.condition) {
+                foldBranch(node);
+            }
+        }
+
+        if (removeDeadAssignments) {
+            removeDeadAssignments(methodDecl);
+        }
+    }
+
+    private Map<String, Integer> collectVariables(String methodName) {
+        var methodVariables = new ArrayList<Symbol>(table.getParameters(methodName));
+        methodVariables.addAll(table.getLocalVariables(methodName));
+
+        var indexes = new HashMap<String, Integer>();
+        for (var variable : methodVariables) {
+            var type = variable.getType();
+            if (!type.isArray() && (type.getName().equals("int") || type.getName().equals("boolean"))) {
+                indexes.putIfAbsent(variable.getName(), indexes.size());
+            }
+        }
+        return indexes;
+    }
+
+    private FlowNode newNode(JmmNode node, boolean condition) {
+        var flowNode = new FlowNode(node, condition);
+        nodes.add(flowNode);
+        if (condition) {
+            branches.put(node, flowNode);
+        }
+        return flowNode;
+    }
+
+    // The graph is built backwards, each statement given the node that runs after it
+
+    private FlowNode buildSequence(List<JmmNode> stmts, FlowNode next) {
+        var current = next;
+        for (int i = stmts.size() - 1; i >= 0; i--) {
+            current = build(stmts.get(i), current);
+        }
+        return current;
+    }
+
+    private FlowNode build(JmmNode stmt, FlowNode next) {
+        return switch (Kind.of(stmt)) {
+            case ASSIGN_STMT, EXPR_STMT, ARRAY_STMT -> {
+                var node = newNode(stmt, false);
+                node.successors.add(next);
+                yield node;
+            }
+            case RETURN_STMT -> {
+                var node = newNode(stmt, false);
+                node.successors.add(exit);
+                yield node;
+            }
+            case BRACKETS -> buildSequence(stmt.getChildren(), next);
+            case IF_STMT -> {
+                var arms = stmt.getChildren();
+                var current = ELSE_EXPR.check(arms.getLast()) ? build(arms.getLast().getChild(0), next) : next;
+
+                for (int i = arms.size() - 1; i >= 0; i--) {
+                    var arm = arms.get(i);
+                    if (ELSE_EXPR.check(arm)) {
+                        continue;
+                    }
+
+                    var node = newNode(arm, true);
+                    node.successors.add(build(arm.getChild(1), next));
+                    node.successors.add(current);
+                    current = node;
+                }
+                yield current;
+            }
+            case WHILE_STMT -> {
+                var node = newNode(stmt, true);
+                node.successors.add(build(stmt.getChild(1), node));
+                node.successors.add(next);
+                yield node;
+            }
+            default -> next;
+        };
+    }
+
+    private void propagate(FlowNode entry) {
+        Deque<FlowNode> worklist = new ArrayDeque<>();
+
+        var unknown = new Object[variables.size()];
+        Arrays.fill(unknown, BOTTOM);
+        entry.in = unknown;
+        entry.out = unknown;
+        entry.executable.set(0);
+        enqueue(entry.successors.getFirst(), worklist);
+
+        while (!worklist.isEmpty()) {
+            var node = worklist.poll();
+            node.queued = false;
+
+            node.in = meetPredecessors(node);
+            if (node.successors.isEmpty()) {
+                continue;
+            }
+
+            var out = node.condition ? node.in : transfer(node.node, node.in);
+            boolean changed = !Arrays.equals(out, node.out);
+            node.out = out;
+
+            for (int i = 0; i < node.successors.size(); i++) {
+                if (!canTake(node, i)) {
+                    continue;
+                }
+
+                if (!node.executable.get(i)) {
+                    node.executable.set(i);
+                    enqueue(node.successors.get(i), worklist);
+                } else if (changed) {
+                    enqueue(node.successors.get(i), worklist);
+                }
+            }
+        }
+    }
+
+    private static void enqueue(FlowNode node, Deque<FlowNode> worklist) {
+        if (!node.queued) {
+            node.queued = true;
+            worklist.add(node);
+        }
+    }
+
+    private Object[] meetPredecessors(FlowNode node) {
+        Object[] in = null;
+
+        for (var predecessor : node.predecessors) {
+            for (int i = 0; i < predecessor.successors.size(); i++) {
+                if (predecessor.successors.get(i) != node || !predecessor.executable.get(i)) {
+                    continue;
+                }
+
+                if (in == null) {
+                    in = predecessor.out.clone();
+                } else {
+                    for (int v = 0; v < in.length; v++) {
+                        in[v] = meet(in[v], predecessor.out[v]);
+                    }
+                }
+            }
+        }
+
+        return in;
+    }
+
+    private static Object meet(Object a, Object b) {
+        if (a == TOP) {
+            return b;
+        }
+        if (b == TOP || a.equals(b)) {
+            return a;
+        }
+        return BOTTOM;
+    }
+
+    private boolean canTake(FlowNode node, int successor) {
+        if (!node.condition) {
+            return true;
+        }
+
+        var value = eval(getCondition(node.node), node.in);
+        if (value instanceof Boolean bool) {
+            return bool == (successor == 0);
+        }
+        return value == BOTTOM;
+    }
+
+    private static JmmNode getCondition(JmmNode branch) {
+        return branch.getChild(0);
+    }
+
+    private Object[] transfer(JmmNode stmt, Object[] in) {
+        if (!ASSIGN_STMT.check(stmt) || !VAR_REF_EXPR.check(stmt.getChild(0))) {
+            return in;
+        }
+
+        var index = variables.get(stmt.getChild(0).get("name"));
+        if (index == null) {
+            return in;
+        }
+
+        var out = in.clone();
+        out[index] = eval(stmt.getChild(1), in);
+        return out;
+    }
+
+    private Object eval(JmmNode expr, Object[] state) {
+        return switch (Kind.of(expr)) {
+            case INTEGER_LITERAL -> CompactAst.getIntValue(expr);
+            case BOOLEAN_EXPR -> Boolean.valueOf(expr.get("value"));
+            case VAR_REF_EXPR -> {
+                var index = variables.get(expr.get("name"));
+                yield index == null ? BOTTOM : state[index];
+            }
+            case PARENTHESIS_EXPR -> eval(expr.getChild(0), state);
+            case NEGATION -> {
+                var value = eval(expr.getChild(0), state);
+                yield value instanceof Boolean bool ? !bool : value;
+            }
+            case BINARY_EXPR -> evalBinary(expr, state);
+            default -> BOTTOM;
+        };
+    }
+
+    private Object evalBinary(JmmNode expr, Object[] state) {
+        var op = Operator.of(expr);
+        var left = eval(expr.getChild(0), state);
+
+        // The right operand only decides the result when it is evaluated
+        if (op == Operator.AND || op == Operator.OR) {
+            if (left instanceof Boolean bool) {
+                return bool == (op == Operator.AND) ? eval(expr.getChild(1), state) : bool;
+            }
+            return left;
+        }
+
+        var right = eval(expr.getChild(1), state);
+        if (!(left instanceof Integer leftValue) || !(right instanceof Integer rightValue)) {
+            return left == BOTTOM || right == BOTTOM ? BOTTOM : TOP;
+        }
+
+        return switch (op) {
+            case ADD -> leftValue + rightValue;
+            case SUB -> leftValue - rightValue;
+            case MUL -> leftValue * rightValue;
+            // Division by zero is left to throw at runtime
+            case DIV -> rightValue == 0 ? BOTTOM : leftValue / rightValue;
+            case LT -> leftValue < rightValue;
+            case GT -> leftValue > rightValue;
+            default -> BOTTOM;
+        };
+    }
+
+    private void foldExpressions(FlowNode node) {
+        var stmt = node.node;
+
+        if (node.condition) {
+            foldExpression(getCondition(stmt), node.in);
+            return;
+        }
+
+        switch (Kind.of(stmt)) {
+            case ASSIGN_STMT -> foldExpression(stmt.getChild(1), node.in);
+            case ARRAY_STMT, RETURN_STMT -> foldChildren(stmt, node.in);
+            // The expression of the statement is kept, only its operands are folded
+            case EXPR_STMT -> foldChildren(stmt.getChild(0), node.in);
+            default -> {
+            }
+        }
+    }
+
+    private void foldExpression(JmmNode expr, Object[] state) {
+        if (INTEGER_LITERAL.check(expr) || BOOLEAN_EXPR.check(expr)) {
+            return;
+        }
+
+        var value = eval(expr, state);
+        if (value instanceof Integer || value instanceof Boolean) {
+            expr.replace(newLiteral(value));
+            foldedExpressions++;
+            return;
+        }
+
+        foldChildren(expr, state);
+    }
+
+    private void foldChildren(JmmNode node, Object[] state) {
+        for (int i = 0; i < node.getNumChildren(); i++) {
+            foldExpression(node.getChild(i), state);
+        }
+    }
+
+    static JmmNode newLiteral(Object value) {
+        var literal = value instanceof Integer ?
+                new JmmNodeImpl(Kind.toNodeName(INTEGER_LITERAL, EXPR)) :
+                new JmmNodeImpl(Kind.toNodeName(BOOLEAN_EXPR, EXPR));
+        literal.put("value", value.toString());
+        return literal;
+    }
+
+    private void foldBranch(FlowNode node) {
+        var branch = node.node;
+
+        if (WHILE_STMT.check(branch)) {
+            if (!node.executable.get(0)) {
+                replaceStatement(branch, List.of());
+                foldedBranches++;
+            }
+            return;
+        }
+
+        // Each arm of an if is folded from its first condition, the others being reached through it
+        if (!IF_EXPR.check(branch)) {
+            return;
+        }
+
+        var ifStmt = branch.getParent();
+        var arms = new ArrayList<JmmNode>();
+        JmmNode elseExpr = null;
+        for (var arm : ifStmt.getChildren()) {
+            if (ELSE_EXPR.check(arm)) {
+                elseExpr = arm;
+            } else {
+                arms.add(arm);
+            }
+        }
+
+        var taken = new ArrayList<JmmNode>();
+        JmmNode elseStmt = elseExpr == null ? null : elseExpr.getChild(0);
+        for (var arm : arms) {
+            var armNode = branches.get(arm);
+            if (!armNode.executable.get(0)) {
+                continue;
+            }
+            if (!armNode.executable.get(1)) {
+                elseStmt = arm.getChild(1);
+                break;
+            }
+            taken.add(arm);
+        }
+
+        if (taken.size() == arms.size()) {
+            return;
+        }
+        foldedBranches++;
+
+        pruneArms(ifStmt, arms, taken, elseExpr, elseStmt);
+    }
+
+    /**
+     * Rewrites an if so that only the arms in 'taken' are left, in order, followed by 'elseStmt' as the else. The if
+     * is replaced by 'elseStmt' when no arm is left.
+     *
+     * @param arms     the IfExpr and ElseifExprs of the if, in order
+     * @param taken    the arms that can still be taken, in order
+     * @param elseExpr the ElseExpr of the if, or null
+     * @param elseStmt the statement to run when no arm is taken, or null
+     */
+    static void pruneArms(JmmNode ifStmt, List<JmmNode> arms, List<JmmNode> taken, JmmNode elseExpr,
+                          JmmNode elseStmt) {
+        if (taken.isEmpty()) {
+            replaceStatement(ifStmt, elseStmt == null ? List.of() : List.of(elseStmt));
+            return;
+        }
+
+        // The IfExpr and the first ElseifExprs are kept, and receive the conditions and statements of the arms left
+        var armChildren = taken.stream().map(arm -> List.copyOf(arm.getChildren())).toList();
+        arms.forEach(SparseConstantProp::removeChildren);
+        for (int i = 0; i < arms.size(); i++) {
+            var arm = arms.get(i);
+            if (i < taken.size()) {
+                armChildren.get(i).forEach(arm::add);
+            } else {
+                ifStmt.removeChild(arm);
+            }
+        }
+
+        if (elseExpr != null && elseStmt != elseExpr.getChild(0)) {
+            detach(elseStmt);
+            removeChildren(elseExpr);
+            elseExpr.add(elseStmt);
+        }
+    }
+
+    /**
+     * Replaces a statement by others, which are spliced into the enclosing block if there is one.
+     */
+    static void replaceStatement(JmmNode stmt, List<JmmNode> replacements) {
+        var parent = stmt.getParent();
+        var stmts = new ArrayList<JmmNode>();
+        for (var replacement : replacements) {
+            if (BRACKETS.check(replacement)) {
+                stmts.addAll(replacement.getChildren());
+            } else {
+                stmts.add(replacement);
+            }
+        }
+        stmts.forEach(SparseConstantProp::detach);
+
+        if (METHOD_DECL.check(parent) || BRACKETS.check(parent)) {
+            int index = parent.removeChild(stmt);
+            for (int i = 0; i < stmts.size(); i++) {
+                parent.add(stmts.get(i), index + i);
+            }
+            return;
+        }
+
+        var block = new JmmNodeImpl(Kind.toNodeName(BRACKETS, STMT));
+        stmts.forEach(block::add);
+        stmt.replace(block);
+    }
+
+    static void detach(JmmNode node) {
+        if (node.getParent() != null) {
+            node.getParent().removeChild(node);
+        }
+    }
+
+    static void removeChildren(JmmNode node) {
+        while (node.getNumChildren() > 0) {
+            node.removeChild(node.getNumChildren() - 1);
+        }
+    }
+
+    private void removeDeadAssignments(JmmNode methodDecl) {
+        var read = new HashSet<String>();
+        for (var varRef : methodDecl.getDescendants(VAR_REF_EXPR)) {
+            var parent = varRef.getParent();
+            if (!ASSIGN_STMT.check(parent) || parent.getChild(0) != varRef) {
+                read.add(varRef.get("name"));
+            }
+        }
+
+        var locals = table.getLocalVariables(methodDecl.get("name")).stream().map(Symbol::getName).toList();
+        var assigned = new HashSet<String>();
+
+        for (var assign : methodDecl.getDescendants(ASSIGN_STMT)) {
+            var target = assign.getChild(0);
+            if (!VAR_REF_EXPR.check(target)) {
+                continue;
+            }
+
+            var name = target.get("name");
+            var value = assign.getChild(1);
+            boolean isConstant = INTEGER_LITERAL.check(value) || BOOLEAN_EXPR.check(value);
+            var parent = assign.getParent();
+
+            if (locals.contains(name) && !read.contains(name) && isConstant
+                    && (METHOD_DECL.check(parent) || BRACKETS.check(parent))) {
+                parent.removeChild(assign);
+            } else {
+                assigned.add(name);
+            }
+        }
+
+        for (var varDecl : methodDecl.getChildren(VAR_DECL)) {
+            var name = varDecl.get("name");
+            if (variables.containsKey(name) && !read.contains(name) && !assigned.contains(name)) {
+                methodDecl.removeChild(varDecl);
+            }
+        }
+    }
+}
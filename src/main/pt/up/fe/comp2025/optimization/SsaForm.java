@@ -0,0 +1,837 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+import org.specs.comp.ollir.type.Type;
+import pt.up.fe.comp2025.optimization.ControlFlowGraph.BasicBlock;
+import pt.up.fe.specs.util.SpecsCheck;
+
+import java.util.*;
+
+/**
+ * Static single assignment form of an OLLIR method.
+ * <p>
+ * OLLIR has no phi instruction, so the form is kept next to the method: every definition and use of a variable (see
+ * {@link InstructionOperands}) is mapped to an {@link SsaValue}, and phis are attached to the blocks of the
+ * {@link ControlFlowGraph}. Phis are placed on the iterated dominance frontiers of the definitions, only where the
+ * variable is live (pruned SSA). Every value keeps its uses, so passes can follow def-use chains instead of iterating
+ * over the method until nothing changes.
+ * <p>
+ * {@link #destruct()} translates the method back, giving each group of coalesced values its own OLLIR variable.
+ */
+public class SsaForm {
+
+    public static class SsaValue {
+
+        private final int id;
+        private final String variable;
+        private final int version;
+        private Instruction definition;
+        private final Phi phi;
+        private final List<Operand> uses;
+        private final List<Phi> phiUses;
+
+        private SsaValue(int id, String variable, int version, Instruction definition, Phi phi) {
+            this.id = id;
+            this.variable = variable;
+            this.version = version;
+            this.definition = definition;
+            this.phi = phi;
+            this.uses = new ArrayList<>();
+            this.phiUses = new ArrayList<>();
+        }
+
+        /**
+         * @return the index of the value in {@link SsaForm#getValues()}
+         */
+        public int getId() {
+            return id;
+        }
+
+        public String getVariable() {
+            return variable;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        /**
+         * @return the assignment that defines the value, or null for phis and for the values variables have when the
+         * method starts (the argument of a parameter, undefined for locals)
+         */
+        public Instruction getDefinition() {
+            return definition;
+        }
+
+        public Phi getPhi() {
+            return phi;
+        }
+
+        public boolean isEntryValue() {
+            return definition == null && phi == null;
+        }
+
+        public List<Operand> getUses() {
+            return uses;
+        }
+
+        public List<Phi> getPhiUses() {
+            return phiUses;
+        }
+
+        @Override
+        public String toString() {
+            return variable + "_" + version;
+        }
+    }
+
+    public static class Phi {
+
+        private final BasicBlock block;
+        private final String variable;
+        private final SsaValue[] arguments;
+        private SsaValue result;
+
+        private Phi(BasicBlock block, String variable) {
+            this.block = block;
+            this.variable = variable;
+            this.arguments = new SsaValue[block.getPredecessors().size()];
+        }
+
+        public BasicBlock getBlock() {
+            return block;
+        }
+
+        public String getVariable() {
+            return variable;
+        }
+
+        public SsaValue getResult() {
+            return result;
+        }
+
+        /**
+         * @return one value for each predecessor of the block, in the same order (null for unreachable predecessors)
+         */
+        public List<SsaValue> getArguments() {
+            return Arrays.asList(arguments);
+        }
+
+        @Override
+        public String toString() {
+            return result + " = phi" + Arrays.toString(arguments);
+        }
+    }
+
+    private final Method method;
+    private final ControlFlowGraph cfg;
+    private final DominatorTree dominatorTree;
+
+    private final List<String> variables;
+    private final List<SsaValue> values;
+    private final Map<String, SsaValue> entryValues;
+    private final Map<Operand, SsaValue> useValues;
+    private final Map<Instruction, SsaValue> definitions;
+    private final Map<BasicBlock, List<Phi>> phis;
+
+    private boolean destructed;
+
+    public SsaForm(Method method) {
+        this.method = method;
+        this.cfg = new ControlFlowGraph(method);
+        this.dominatorTree = new DominatorTree(cfg);
+
+        this.variables = new ArrayList<>();
+        this.values = new ArrayList<>();
+        this.entryValues = new LinkedHashMap<>();
+        this.useValues = new IdentityHashMap<>();
+        this.definitions = new HashMap<>();
+        this.phis = new HashMap<>();
+        this.destructed = false;
+
+        collectVariables();
+        placePhis();
+        rename();
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public ControlFlowGraph getCfg() {
+        return cfg;
+    }
+
+    public DominatorTree getDominatorTree() {
+        return dominatorTree;
+    }
+
+    public List<SsaValue> getValues() {
+        return values;
+    }
+
+    /**
+     * @return the value read by a use of a variable, or null if the operand is not a variable or is unreachable
+     */
+    public SsaValue getValue(Operand use) {
+        return useValues.get(use);
+    }
+
+    public SsaValue getEntryValue(String variable) {
+        return entryValues.get(variable);
+    }
+
+    /**
+     * @return the value defined by an instruction, or null if it does not assign a variable
+     */
+    public SsaValue getDefinition(Instruction instruction) {
+        return definitions.get(instruction);
+    }
+
+    public List<Phi> getPhis(BasicBlock block) {
+        return phis.getOrDefault(block, List.of());
+    }
+
+    /**
+     * Replaces the right-hand side of an assignment with a copy of another value, keeping the value it defines.
+     *
+     * @return the new assignment, which takes the place of the old one in the method and in the CFG
+     */
+    public AssignInstruction replaceWithCopy(AssignInstruction assign, SsaValue source) {
+        SpecsCheck.checkArgument(!destructed, () -> "SSA form of method '" + method.getMethodName() + "' was already destructed");
+
+        for (var use : InstructionOperands.getUses(assign, method)) {
+            var value = useValues.remove(use);
+            if (value != null) {
+                value.uses.removeIf(valueUse -> valueUse == use);
+            }
+        }
+
+        var operand = new Operand(source.variable, method.getVarTable().get(source.variable).getVarType());
+        var copy = new AssignInstruction(assign.getDest(), assign.getTypeOfAssign(), new SingleOpInstruction(operand));
+        useValues.put(operand, source);
+        source.uses.add(operand);
+
+        var def = definitions.remove(assign);
+        if (def != null) {
+            def.definition = copy;
+            definitions.put(copy, def);
+        }
+
+        var instructions = method.getInstructions();
+        instructions.set(instructions.indexOf(assign), copy);
+        method.getLabels().replaceAll((label, instruction) -> instruction == assign ? copy : instruction);
+        cfg.replace(assign, copy);
+
+        return copy;
+    }
+
+    private void collectVariables() {
+        var names = new LinkedHashSet<String>();
+
+        for (var param : method.getParams()) {
+            if (InstructionOperands.isVariable(param, method)) {
+                names.add(((Operand) param).getName());
+            }
+        }
+
+        for (var block : cfg.getReversePostorder()) {
+            for (var instruction : block.getInstructions()) {
+                InstructionOperands.getUses(instruction, method).forEach(use -> names.add(use.getName()));
+                InstructionOperands.getDef(instruction, method).ifPresent(def -> names.add(def.getName()));
+            }
+        }
+
+        variables.addAll(names);
+    }
+
+    private void placePhis() {
+        var reachable = cfg.getReversePostorder();
+        if (reachable.isEmpty()) {
+            return;
+        }
+
+        var indexes = new HashMap<String, Integer>();
+        for (int i = 0; i < variables.size(); i++) {
+            indexes.put(variables.get(i), i);
+        }
+
+        // Variables read before being written in each block, and blocks that write each variable
+        int numBlocks = cfg.getBlocks().size();
+        var upwardExposed = new BitSet[numBlocks];
+        var written = new BitSet[numBlocks];
+        var defBlocks = new HashMap<String, Set<BasicBlock>>();
+
+        for (var block : reachable) {
+            var exposed = new BitSet();
+            var defined = new BitSet();
+            for (var instruction : block.getInstructions()) {
+                for (var use : InstructionOperands.getUses(instruction, method)) {
+                    int index = indexes.get(use.getName());
+                    if (!defined.get(index)) {
+                        exposed.set(index);
+                    }
+                }
+                var def = InstructionOperands.getDef(instruction, method);
+                if (def.isPresent()) {
+                    defined.set(indexes.get(def.get().getName()));
+                    defBlocks.computeIfAbsent(def.get().getName(), name -> new LinkedHashSet<>()).add(block);
+                }
+            }
+            upwardExposed[block.getIndex()] = exposed;
+            written[block.getIndex()] = defined;
+        }
+
+        var liveIn = computeLiveIn(reachable, upwardExposed, written);
+
+        for (var variable : variables) {
+            int index = indexes.get(variable);
+            var blocksWithDef = defBlocks.getOrDefault(variable, Set.of());
+            var hasPhi = new HashSet<BasicBlock>();
+
+            Deque<BasicBlock> worklist = new ArrayDeque<>(blocksWithDef);
+            while (!worklist.isEmpty()) {
+                var block = worklist.poll();
+                for (var frontier : dominatorTree.getDominanceFrontier(block)) {
+                    if (hasPhi.contains(frontier) || !liveIn[frontier.getIndex()].get(index)) {
+                        continue;
+                    }
+
+                    phis.computeIfAbsent(frontier, key -> new ArrayList<>()).add(new Phi(frontier, variable));
+                    hasPhi.add(frontier);
+
+                    if (!blocksWithDef.contains(frontier)) {
+                        worklist.add(frontier);
+                    }
+                }
+            }
+        }
+    }
+
+    private static BitSet[] computeLiveIn(List<BasicBlock> reversePostorder, BitSet[] uses, BitSet[] defs) {
+        var liveIn = new BitSet[uses.length];
+        for (var block : reversePostorder) {
+            liveIn[block.getIndex()] = (BitSet) uses[block.getIndex()].clone();
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (var block : reversePostorder.reversed()) {
+                var live = new BitSet();
+                for (var successor : block.getSuccessors()) {
+                    live.or(liveIn[successor.getIndex()]);
+                }
+                live.andNot(defs[block.getIndex()]);
+                live.or(uses[block.getIndex()]);
+
+                if (!live.equals(liveIn[block.getIndex()])) {
+                    liveIn[block.getIndex()] = live;
+                    changed = true;
+                }
+            }
+        }
+
+        return liveIn;
+    }
+
+    private void rename() {
+        var stacks = new HashMap<String, Deque<SsaValue>>();
+        var versions = new HashMap<String, Integer>();
+
+        for (var variable : variables) {
+            var entryValue = newValue(variable, versions, null, null);
+            entryValues.put(variable, entryValue);
+
+            Deque<SsaValue> stack = new ArrayDeque<>();
+            stack.push(entryValue);
+            stacks.put(variable, stack);
+        }
+
+        var entry = cfg.getEntry();
+        if (entry.isPresent()) {
+            rename(entry.get(), stacks, versions);
+        }
+    }
+
+    private void rename(BasicBlock block, Map<String, Deque<SsaValue>> stacks, Map<String, Integer> versions) {
+        var pushed = new ArrayList<String>();
+
+        for (var phi : phis.getOrDefault(block, List.of())) {
+            phi.result = newValue(phi.variable, versions, null, phi);
+            stacks.get(phi.variable).push(phi.result);
+            pushed.add(phi.variable);
+        }
+
+        for (var instruction : block.getInstructions()) {
+            for (var use : InstructionOperands.getUses(instruction, method)) {
+                var value = stacks.get(use.getName()).peek();
+                useValues.put(use, value);
+                value.uses.add(use);
+            }
+
+            var def = InstructionOperands.getDef(instruction, method);
+            if (def.isPresent()) {
+                var name = def.get().getName();
+                var value = newValue(name, versions, instruction, null);
+                definitions.put(instruction, value);
+                stacks.get(name).push(value);
+                pushed.add(name);
+            }
+        }
+
+        for (var successor : new LinkedHashSet<>(block.getSuccessors())) {
+            var predecessors = successor.getPredecessors();
+            for (var phi : phis.getOrDefault(successor, List.of())) {
+                var value = stacks.get(phi.variable).peek();
+                for (int i = 0; i < predecessors.size(); i++) {
+                    if (predecessors.get(i) == block) {
+                        phi.arguments[i] = value;
+                        value.phiUses.add(phi);
+                    }
+                }
+            }
+        }
+
+        for (var child : dominatorTree.getChildren(block)) {
+            rename(child, stacks, versions);
+        }
+
+        for (var variable : pushed) {
+            stacks.get(variable).pop();
+        }
+    }
+
+    private SsaValue newValue(String variable, Map<String, Integer> versions, Instruction definition, Phi phi) {
+        int version = versions.merge(variable, 1, Integer::sum) - 1;
+        var value = new SsaValue(values.size(), variable, version, definition, phi);
+        values.add(value);
+        return value;
+    }
+
+    /**
+     * Copy between two names of the translation out of SSA: values use their ids, and the temporary of each phi the
+     * ids that follow.
+     */
+    private record Copy(int dest, int source) {
+    }
+
+    /**
+     * Reads, write and copy of one step of a block, in the order they execute.
+     */
+    private record Step(int def, int[] uses, int copySource) {
+    }
+
+    /**
+     * Translates the method out of SSA, after which this form can no longer be used.
+     * <p>
+     * Each phi becomes a copy into a new temporary at the end of each predecessor, and a copy from the temporary at
+     * the start of its block (so copies on critical edges and cycles of phis need no special handling). Copies,
+     * including the moves between variables already in the method, are then coalesced whenever the two names do not
+     * interfere, and only the remaining ones are added to the method. Unrelated live ranges of the same variable end
+     * up as different variables, which gives the register allocator more freedom.
+     */
+    public void destruct() {
+        SpecsCheck.checkArgument(!destructed, () -> "SSA form of method '" + method.getMethodName() + "' was already destructed");
+        destructed = true;
+
+        var reachable = cfg.getReversePostorder();
+        if (reachable.isEmpty()) {
+            return;
+        }
+
+        // Ids of the phi temporaries
+        var allPhis = new ArrayList<Phi>();
+        for (var block : reachable) {
+            allPhis.addAll(getPhis(block));
+        }
+        var temporaries = new IdentityHashMap<Phi, Integer>();
+        for (var phi : allPhis) {
+            temporaries.put(phi, values.size() + temporaries.size());
+        }
+        int numNames = values.size() + temporaries.size();
+
+        var moves = new HashMap<Instruction, Copy>();
+        var steps = buildSteps(reachable, temporaries, moves);
+        var interference = buildInterference(reachable, steps, numNames);
+
+        // Coalescing, starting with the copies of the phis
+        var classes = new NameClasses(numNames, interference);
+        for (var phi : allPhis) {
+            classes.coalesce(phi.result.id, temporaries.get(phi));
+            for (var argument : phi.arguments) {
+                if (argument != null) {
+                    classes.coalesce(temporaries.get(phi), argument.id);
+                }
+            }
+        }
+        for (var move : moves.values()) {
+            classes.coalesce(move.dest(), move.source());
+        }
+
+        var newNames = new HashSet<String>();
+        var names = assignNames(classes, allPhis, temporaries, numNames, newNames);
+        rewrite(reachable, temporaries, classes, names, moves);
+
+        // Names given to classes that ended up without any occurrence, e.g. locals that are never read before their
+        // first assignment
+        for (var instruction : method.getInstructions()) {
+            InstructionOperands.getUses(instruction, method).forEach(use -> newNames.remove(use.getName()));
+            InstructionOperands.getDef(instruction, method).ifPresent(def -> newNames.remove(def.getName()));
+        }
+        method.getVarTable().keySet().removeAll(newNames);
+    }
+
+    private Map<BasicBlock, List<Step>> buildSteps(List<BasicBlock> reachable, Map<Phi, Integer> temporaries,
+                                                   Map<Instruction, Copy> moves) {
+        var steps = new HashMap<BasicBlock, List<Step>>();
+
+        for (var block : reachable) {
+            var blockSteps = new ArrayList<Step>();
+
+            for (var phi : getPhis(block)) {
+                int temporary = temporaries.get(phi);
+                blockSteps.add(new Step(phi.result.id, new int[]{temporary}, temporary));
+            }
+
+            var instructions = block.getInstructions();
+            var terminator = !instructions.isEmpty() && ControlFlowGraph.isTerminator(block.getLast()) ?
+                    block.getLast() : null;
+
+            for (var instruction : instructions) {
+                if (instruction != terminator) {
+                    blockSteps.add(toStep(instruction, moves));
+                }
+            }
+
+            for (var copy : getEndCopies(block, temporaries)) {
+                blockSteps.add(new Step(copy.dest(), new int[]{copy.source()}, copy.source()));
+            }
+
+            if (terminator != null) {
+                blockSteps.add(toStep(terminator, moves));
+            }
+
+            steps.put(block, blockSteps);
+        }
+
+        return steps;
+    }
+
+    private Step toStep(Instruction instruction, Map<Instruction, Copy> moves) {
+        var uses = InstructionOperands.getUses(instruction, method);
+        var useIds = new int[uses.size()];
+        for (int i = 0; i < uses.size(); i++) {
+            useIds[i] = useValues.get(uses.get(i)).id;
+        }
+
+        var def = definitions.get(instruction);
+        if (def == null) {
+            return new Step(-1, useIds, -1);
+        }
+
+        // Moves between two variables can be coalesced like the copies of the phis
+        if (instruction instanceof AssignInstruction assign && assign.getRhs() instanceof SingleOpInstruction single
+                && useIds.length == 1 && single.getSingleOperand() == uses.getFirst()
+                && !(single.getSingleOperand() instanceof ArrayOperand)) {
+            moves.put(instruction, new Copy(def.id, useIds[0]));
+            return new Step(def.id, useIds, useIds[0]);
+        }
+
+        return new Step(def.id, useIds, -1);
+    }
+
+    /**
+     * @return the copies into the temporaries of the phis of the successors, done at the end of the block
+     */
+    private List<Copy> getEndCopies(BasicBlock block, Map<Phi, Integer> temporaries) {
+        var copies = new ArrayList<Copy>();
+        for (var successor : new LinkedHashSet<>(block.getSuccessors())) {
+            int predecessorIndex = successor.getPredecessors().indexOf(block);
+            for (var phi : getPhis(successor)) {
+                copies.add(new Copy(temporaries.get(phi), phi.arguments[predecessorIndex].id));
+            }
+        }
+        return copies;
+    }
+
+    private BitSet[] buildInterference(List<BasicBlock> reachable, Map<BasicBlock, List<Step>> steps, int numNames) {
+        int numBlocks = cfg.getBlocks().size();
+        var uses = new BitSet[numBlocks];
+        var defs = new BitSet[numBlocks];
+
+        for (var block : reachable) {
+            var blockUses = new BitSet();
+            var blockDefs = new BitSet();
+            for (var step : steps.get(block)) {
+                for (int use : step.uses()) {
+                    if (!blockDefs.get(use)) {
+                        blockUses.set(use);
+                    }
+                }
+                if (step.def() >= 0) {
+                    blockDefs.set(step.def());
+                }
+            }
+            uses[block.getIndex()] = blockUses;
+            defs[block.getIndex()] = blockDefs;
+        }
+
+        var liveIn = computeLiveIn(reachable, uses, defs);
+
+        var interference = new BitSet[numNames];
+        for (int i = 0; i < numNames; i++) {
+            interference[i] = new BitSet();
+        }
+
+        for (var block : reachable) {
+            var live = new BitSet();
+            for (var successor : block.getSuccessors()) {
+                live.or(liveIn[successor.getIndex()]);
+            }
+
+            var blockSteps = steps.get(block);
+            for (int i = blockSteps.size() - 1; i >= 0; i--) {
+                var step = blockSteps.get(i);
+                if (step.def() >= 0) {
+                    // The source of a copy does not interfere with its destination, they hold the same value
+                    for (int name = live.nextSetBit(0); name >= 0; name = live.nextSetBit(name + 1)) {
+                        if (name != step.def() && name != step.copySource()) {
+                            interference[step.def()].set(name);
+                            interference[name].set(step.def());
+                        }
+                    }
+                    live.clear(step.def());
+                }
+                for (int use : step.uses()) {
+                    live.set(use);
+                }
+            }
+
+            // Values live when the method starts are all defined at the same time
+            if (block == reachable.getFirst()) {
+                for (int a = live.nextSetBit(0); a >= 0; a = live.nextSetBit(a + 1)) {
+                    for (int b = live.nextSetBit(a + 1); b >= 0; b = live.nextSetBit(b + 1)) {
+                        interference[a].set(b);
+                        interference[b].set(a);
+                    }
+                }
+            }
+        }
+
+        return interference;
+    }
+
+    /**
+     * Union-find of names, where each class keeps the names it interferes with.
+     */
+    private class NameClasses {
+
+        private final int[] parents;
+        private final BitSet[] members;
+        private final BitSet[] interference;
+
+        // Parameter whose argument is in each class, which must keep the name of the parameter
+        private final String[] parameters;
+
+        NameClasses(int numNames, BitSet[] interference) {
+            this.parents = new int[numNames];
+            this.members = new BitSet[numNames];
+            this.interference = interference;
+            this.parameters = new String[numNames];
+
+            for (int i = 0; i < numNames; i++) {
+                parents[i] = i;
+                members[i] = new BitSet();
+                members[i].set(i);
+            }
+
+            for (var entryValue : entryValues.values()) {
+                if (method.getVarTable().get(entryValue.variable).getScope() == VarScope.PARAMETER) {
+                    parameters[entryValue.id] = entryValue.variable;
+                }
+            }
+        }
+
+        int find(int name) {
+            while (parents[name] != name) {
+                parents[name] = parents[parents[name]];
+                name = parents[name];
+            }
+            return name;
+        }
+
+        void coalesce(int a, int b) {
+            int rootA = find(a);
+            int rootB = find(b);
+            if (rootA == rootB || interference[rootA].intersects(members[rootB])
+                    || (parameters[rootA] != null && parameters[rootB] != null)) {
+                return;
+            }
+
+            parents[rootB] = rootA;
+            members[rootA].or(members[rootB]);
+            interference[rootA].or(interference[rootB]);
+            if (parameters[rootA] == null) {
+                parameters[rootA] = parameters[rootB];
+            }
+        }
+
+        String getParameter(int root) {
+            return parameters[root];
+        }
+    }
+
+    private String[] assignNames(NameClasses classes, List<Phi> allPhis, Map<Phi, Integer> temporaries, int numNames,
+                                 Set<String> newNames) {
+        var varTable = method.getVarTable();
+        var taken = new HashSet<>(varTable.keySet());
+        var kept = new HashSet<String>();
+        var rootNames = new HashMap<Integer, String>();
+
+        // Parameters keep their names, which the register allocator expects
+        for (int name = 0; name < numNames; name++) {
+            int root = classes.find(name);
+            if (root == name && classes.getParameter(root) != null) {
+                rootNames.put(root, classes.getParameter(root));
+                kept.add(classes.getParameter(root));
+            }
+        }
+
+        var phiVariables = new HashMap<Integer, String>();
+        for (var phi : allPhis) {
+            phiVariables.put(temporaries.get(phi), phi.variable);
+        }
+
+        int nextRegister = varTable.values().stream().mapToInt(Descriptor::getVirtualReg).max().orElse(0) + 1;
+
+        // Values of locals before their first assignment come last, as most of them are never read
+        var order = new ArrayList<Integer>(numNames);
+        for (int name = 0; name < numNames; name++) {
+            if (name >= values.size() || !values.get(name).isEntryValue()) {
+                order.add(name);
+            }
+        }
+        for (var entryValue : entryValues.values()) {
+            order.add(entryValue.id);
+        }
+
+        var names = new String[numNames];
+        for (int name : order) {
+            int root = classes.find(name);
+
+            if (!rootNames.containsKey(root)) {
+                // Named after the variable of the current name, which keeps its own name in the first class
+                var variable = name < values.size() ? values.get(name).variable : phiVariables.get(name);
+
+                String newName = variable;
+                if (kept.contains(variable) || varTable.get(variable).getScope() == VarScope.PARAMETER) {
+                    int suffix = 1;
+                    do {
+                        newName = variable + "_" + suffix++;
+                    } while (taken.contains(newName));
+
+                    var descriptor = varTable.get(variable);
+                    varTable.put(newName, new Descriptor(VarScope.LOCAL, nextRegister++, descriptor.getVarType()));
+                    taken.add(newName);
+                    newNames.add(newName);
+                }
+                kept.add(variable);
+                rootNames.put(root, newName);
+            }
+
+            names[name] = rootNames.get(root);
+        }
+
+        return names;
+    }
+
+    private void rewrite(List<BasicBlock> reachable, Map<Phi, Integer> temporaries, NameClasses classes, String[] names,
+                         Map<Instruction, Copy> moves) {
+        for (var entry : useValues.entrySet()) {
+            entry.getKey().setName(names[entry.getValue().id]);
+        }
+        for (var entry : definitions.entrySet()) {
+            ((Operand) ((AssignInstruction) entry.getKey()).getDest()).setName(names[entry.getValue().id]);
+        }
+
+        var reachableBlocks = new HashSet<>(reachable);
+        var lastInstruction = method.getInstructions().isEmpty() ? null : method.getInstructions().getLast();
+
+        var instructions = new ArrayList<Instruction>();
+        var labelTargets = new HashMap<Instruction, Instruction>();
+        var pendingLabels = new ArrayList<Instruction>();
+
+        for (var block : cfg.getBlocks()) {
+            var blockInstructions = block.getInstructions();
+            if (!reachableBlocks.contains(block)) {
+                for (var instruction : blockInstructions) {
+                    emit(instruction, instructions, labelTargets, pendingLabels);
+                }
+                continue;
+            }
+
+            // Labels of the block move to the copies placed before its first instruction
+            var startCopies = new ArrayList<Copy>();
+            for (var phi : getPhis(block)) {
+                startCopies.add(new Copy(phi.result.id, temporaries.get(phi)));
+            }
+            startCopies.removeIf(copy -> classes.find(copy.dest()) == classes.find(copy.source()));
+            if (!startCopies.isEmpty() && !blockInstructions.isEmpty()) {
+                pendingLabels.add(block.getFirst());
+            }
+            for (var copy : startCopies) {
+                emit(newCopy(names[copy.dest()], names[copy.source()]), instructions, labelTargets, pendingLabels);
+            }
+
+            var terminator = !blockInstructions.isEmpty() && ControlFlowGraph.isTerminator(block.getLast()) ?
+                    block.getLast() : null;
+
+            for (var instruction : blockInstructions) {
+                if (instruction == terminator) {
+                    continue;
+                }
+
+                // Coalesced moves become a copy of a variable to itself
+                var move = moves.get(instruction);
+                if (move != null && classes.find(move.dest()) == classes.find(move.source())
+                        && instruction != lastInstruction) {
+                    pendingLabels.add(instruction);
+                    continue;
+                }
+
+                emit(instruction, instructions, labelTargets, pendingLabels);
+            }
+
+            for (var copy : getEndCopies(block, temporaries)) {
+                if (classes.find(copy.dest()) != classes.find(copy.source())) {
+                    emit(newCopy(names[copy.dest()], names[copy.source()]), instructions, labelTargets, pendingLabels);
+                }
+            }
+
+            if (terminator != null) {
+                emit(terminator, instructions, labelTargets, pendingLabels);
+            }
+        }
+
+        method.getInstructions().clear();
+        method.getInstructions().addAll(instructions);
+        method.getLabels().replaceAll((label, instruction) -> labelTargets.getOrDefault(instruction, instruction));
+    }
+
+    private static void emit(Instruction instruction, List<Instruction> instructions,
+                             Map<Instruction, Instruction> labelTargets, List<Instruction> pendingLabels) {
+        for (var pending : pendingLabels) {
+            labelTargets.put(pending, instruction);
+        }
+        pendingLabels.clear();
+
+        instructions.add(instruction);
+    }
+
+    private Instruction newCopy(String dest, String source) {
+        Type type = method.getVarTable().get(dest).getVarType();
+        return new AssignInstruction(new Operand(dest, type), type, new SingleOpInstruction(new Operand(source, type)));
+    }
+}
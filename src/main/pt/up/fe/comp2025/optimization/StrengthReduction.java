@@ -0,0 +1,369 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+import org.specs.comp.ollir.type.BuiltinKind;
+import org.specs.comp.ollir.type.BuiltinType;
+import org.specs.comp.ollir.type.Type;
+
+import java.util.*;
+
+/**
+ * Replaces multiplications in OLLIR methods with cheaper operations.
+ * <p>
+ * A basic induction variable of a loop is a variable whose only assignment in the loop is i := i + c, with c an integer
+ * literal. A multiplication of i by a loop-invariant factor k derives a new induction variable, kept in a new local
+ * that is set to i * k in the preheader and incremented by c * k right after i, so the multiplication becomes a copy.
+ * Basic induction variables that are then only used by their own increment and by dead copies, and are not read
+ * after the loop, are removed. Multiplications by a power of two left anywhere in the method become shifts.
+ * <p>
+ * Divisions by powers of two are kept, since shifting rounds negative numbers down while idiv rounds them to zero.
+ */
+public class StrengthReduction {
+
+    private static final String INDUCTION_VARIABLE = "iv";
+
+    private final Method method;
+    private final Type intType;
+
+    public StrengthReduction(Method method) {
+        this.method = method;
+        this.intType = new BuiltinType(BuiltinKind.INT32);
+    }
+
+    /**
+     * @return the number of multiplications replaced plus the number of induction variables removed
+     */
+    public int apply() {
+        int changes = 0;
+
+        // The graph changes with each preheader, so loops are found again until none of them has work left
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (var loop : findLoops()) {
+                int reduced = reduceMultiplications(loop);
+                if (reduced > 0) {
+                    changes += reduced;
+                    changed = true;
+                    break;
+                }
+            }
+        }
+
+        changed = true;
+        while (changed) {
+            changed = removeUnusedInductionVariables();
+            if (changed) {
+                changes++;
+            }
+        }
+
+        return changes + replaceWithShifts();
+    }
+
+    private List<NaturalLoop> findLoops() {
+        return NaturalLoop.find(new DominatorTree(new ControlFlowGraph(method)));
+    }
+
+    private int reduceMultiplications(NaturalLoop loop) {
+        var instructions = loop.getInstructions();
+        var defs = InstructionOperands.countDefs(instructions, method);
+        var increments = findIncrements(instructions, defs);
+        if (increments.isEmpty()) {
+            return 0;
+        }
+
+        // Multiplications of the same variable by the same factor share the derived variable
+        var multiplications = new LinkedHashMap<String, List<AssignInstruction>>();
+        var factors = new HashMap<String, Element>();
+        var variables = new HashMap<String, String>();
+        for (var instruction : instructions) {
+            if (!(instruction instanceof AssignInstruction assign) || InstructionOperands.getDef(assign, method).isEmpty()
+                    || !(assign.getRhs() instanceof BinaryOpInstruction binary)
+                    || binary.getOperation().getOpType() != OperationType.MUL) {
+                continue;
+            }
+
+            var left = binary.getLeftOperand();
+            var right = binary.getRightOperand();
+            String variable = null;
+            Element factor = null;
+            if (isInductionVariable(left, increments) && isInvariant(right, defs)) {
+                variable = ((Operand) left).getName();
+                factor = right;
+            } else if (isInductionVariable(right, increments) && isInvariant(left, defs)) {
+                variable = ((Operand) right).getName();
+                factor = left;
+            }
+
+            if (variable != null) {
+                var key = variable + " * " + getKey(factor);
+                multiplications.computeIfAbsent(key, k -> new ArrayList<>()).add(assign);
+                factors.put(key, factor);
+                variables.put(key, variable);
+            }
+        }
+
+        if (multiplications.isEmpty()) {
+            return 0;
+        }
+
+        var preheader = new ArrayList<Instruction>();
+        var lastUpdates = new HashMap<Instruction, Instruction>();
+        var insertions = new LinkedHashMap<Instruction, Instruction>();
+        var replacements = new LinkedHashMap<Instruction, Instruction>();
+
+        for (var entry : multiplications.entrySet()) {
+            var variable = variables.get(entry.getKey());
+            var factor = factors.get(entry.getKey());
+            var increment = increments.get(variable);
+            int step = getStep(increment).orElseThrow();
+
+            var derived = newVariable();
+            preheader.add(newAssign(derived, new BinaryOpInstruction(newOperand(variable), newOperation(OperationType.MUL),
+                    copy(factor))));
+
+            Element derivedStep;
+            if (factor instanceof LiteralElement literal) {
+                derivedStep = newLiteral(Integer.parseInt(literal.getLiteral()) * step);
+            } else if (step == 1) {
+                derivedStep = copy(factor);
+            } else {
+                var stepVariable = newVariable();
+                preheader.add(newAssign(stepVariable, new BinaryOpInstruction(copy(factor), newOperation(OperationType.MUL),
+                        newLiteral(step))));
+                derivedStep = newOperand(stepVariable);
+            }
+
+            // Several derived variables of the same basic one are updated in the order they were created
+            var update = newAssign(derived, new BinaryOpInstruction(newOperand(derived), newOperation(OperationType.ADD),
+                    derivedStep));
+            insertions.put(update, lastUpdates.getOrDefault(increment, increment));
+            lastUpdates.put(increment, update);
+
+            for (var multiplication : entry.getValue()) {
+                var dest = (Operand) multiplication.getDest();
+                replacements.put(multiplication, newAssign(dest.getName(), dest.getType(),
+                        new SingleOpInstruction(newOperand(derived))));
+            }
+        }
+
+        // The preheader goes in before any other instruction changes, while the graph of the loop is still valid
+        loop.moveToPreheader(method, preheader);
+        for (var entry : insertions.entrySet()) {
+            MethodInstructions.insertAfter(method, entry.getValue(), entry.getKey());
+        }
+        for (var entry : replacements.entrySet()) {
+            MethodInstructions.replace(method, entry.getKey(), entry.getValue());
+        }
+
+        return multiplications.values().stream().mapToInt(List::size).sum();
+    }
+
+    private boolean removeUnusedInductionVariables() {
+        var cfg = new ControlFlowGraph(method);
+        var liveness = new LivenessAnalysis(method, cfg);
+        liveness.analyze();
+
+        for (var loop : NaturalLoop.find(new DominatorTree(cfg))) {
+            var instructions = loop.getInstructions();
+            var increments = findIncrements(instructions, InstructionOperands.countDefs(instructions, method));
+
+            for (var entry : increments.entrySet()) {
+                var variable = entry.getKey();
+
+                // Copies of the variable whose value is never read are removed along with it
+                var removed = new HashSet<Instruction>();
+                removed.add(entry.getValue());
+                boolean used = false;
+                for (var instruction : instructions) {
+                    if (instruction == entry.getValue() || InstructionOperands.getUses(instruction, method).stream()
+                            .noneMatch(use -> use.getName().equals(variable))) {
+                        continue;
+                    }
+
+                    if (isDeadCopy(instruction, liveness)) {
+                        removed.add(instruction);
+                    } else {
+                        used = true;
+                        break;
+                    }
+                }
+
+                if (used || isLiveAfter(loop, variable, liveness)) {
+                    continue;
+                }
+
+                MethodInstructions.remove(method, removed);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isDeadCopy(Instruction instruction, LivenessAnalysis liveness) {
+        return instruction instanceof AssignInstruction assign && assign.getDest() instanceof Operand dest
+                && !(dest instanceof ArrayOperand) && assign.getRhs() instanceof SingleOpInstruction single
+                && !(single.getSingleOperand() instanceof ArrayOperand)
+                && liveness.getOutList(assign).stream().noneMatch(operand -> operand.getName().equals(dest.getName()));
+    }
+
+    private static boolean isLiveAfter(NaturalLoop loop, String variable, LivenessAnalysis liveness) {
+        for (var block : loop.getBlocks()) {
+            for (var successor : block.getSuccessors()) {
+                if (!loop.contains(successor) && liveness.getInList(successor.getFirst()).stream()
+                        .anyMatch(operand -> operand.getName().equals(variable))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int replaceWithShifts() {
+        int replaced = 0;
+
+        for (var instruction : List.copyOf(method.getInstructions())) {
+            if (!(instruction instanceof AssignInstruction assign)
+                    || !(assign.getRhs() instanceof BinaryOpInstruction binary)
+                    || binary.getOperation().getOpType() != OperationType.MUL) {
+                continue;
+            }
+
+            var left = binary.getLeftOperand();
+            var right = binary.getRightOperand();
+            int shift = getPowerOfTwo(right);
+            var shifted = left;
+            if (shift < 0 || left.isLiteral()) {
+                shift = getPowerOfTwo(left);
+                shifted = right;
+            }
+            if (shift < 0 || shifted.isLiteral()) {
+                continue;
+            }
+
+            var shiftOperation = new BinaryOpInstruction(shifted, newOperation(OperationType.SHL), newLiteral(shift));
+            MethodInstructions.replace(method, assign, new AssignInstruction(assign.getDest(), assign.getTypeOfAssign(),
+                    shiftOperation));
+            replaced++;
+        }
+
+        return replaced;
+    }
+
+    /**
+     * @return the exponent of the literal if it is a power of two greater than 1, or -1 otherwise
+     */
+    private static int getPowerOfTwo(Element element) {
+        if (!(element instanceof LiteralElement literal)) {
+            return -1;
+        }
+
+        int value = Integer.parseInt(literal.getLiteral());
+        return value > 1 && Integer.bitCount(value) == 1 ? Integer.numberOfTrailingZeros(value) : -1;
+    }
+
+    /**
+     * @return the increment of each basic induction variable of the loop
+     */
+    private Map<String, AssignInstruction> findIncrements(List<Instruction> instructions, Map<String, Integer> defs) {
+        var increments = new LinkedHashMap<String, AssignInstruction>();
+        for (var instruction : instructions) {
+            var def = InstructionOperands.getDef(instruction, method);
+            if (def.isPresent() && defs.get(def.get().getName()) == 1 && getStep(instruction).isPresent()) {
+                increments.put(def.get().getName(), (AssignInstruction) instruction);
+            }
+        }
+        return increments;
+    }
+
+    /**
+     * @return c if the instruction is i := i + c, i := c + i or i := i - c (as -c), for an integer literal c
+     */
+    private Optional<Integer> getStep(Instruction instruction) {
+        if (!(instruction instanceof AssignInstruction assign) || !(assign.getDest() instanceof Operand dest)
+                || !(assign.getRhs() instanceof BinaryOpInstruction binary)) {
+            return Optional.empty();
+        }
+
+        var left = binary.getLeftOperand();
+        var right = binary.getRightOperand();
+        return switch (binary.getOperation().getOpType()) {
+            case ADD -> {
+                if (isVariable(left, dest.getName()) && right instanceof LiteralElement literal) {
+                    yield Optional.of(Integer.parseInt(literal.getLiteral()));
+                }
+                if (isVariable(right, dest.getName()) && left instanceof LiteralElement literal) {
+                    yield Optional.of(Integer.parseInt(literal.getLiteral()));
+                }
+                yield Optional.empty();
+            }
+            case SUB -> isVariable(left, dest.getName()) && right instanceof LiteralElement literal ?
+                    Optional.of(-Integer.parseInt(literal.getLiteral())) : Optional.empty();
+            default -> Optional.empty();
+        };
+    }
+
+    private static boolean isVariable(Element element, String name) {
+        return element instanceof Operand operand && !(operand instanceof ArrayOperand) && !operand.isLiteral()
+                && operand.getName().equals(name);
+    }
+
+    private boolean isInductionVariable(Element element, Map<String, AssignInstruction> increments) {
+        return InstructionOperands.isVariable(element, method) && !(element instanceof ArrayOperand)
+                && increments.containsKey(((Operand) element).getName());
+    }
+
+    private boolean isInvariant(Element element, Map<String, Integer> defs) {
+        if (element instanceof LiteralElement) {
+            return true;
+        }
+        return InstructionOperands.isVariable(element, method) && !(element instanceof ArrayOperand)
+                && !defs.containsKey(((Operand) element).getName());
+    }
+
+    private static String getKey(Element element) {
+        return element instanceof LiteralElement literal ? literal.getLiteral() : ((Operand) element).getName();
+    }
+
+    private String newVariable() {
+        var varTable = method.getVarTable();
+
+        int suffix = 0;
+        while (varTable.containsKey(INDUCTION_VARIABLE + suffix)) {
+            suffix++;
+        }
+
+        int register = varTable.values().stream().mapToInt(Descriptor::getVirtualReg).max().orElse(0) + 1;
+        varTable.put(INDUCTION_VARIABLE + suffix, new Descriptor(VarScope.LOCAL, register, intType));
+        return INDUCTION_VARIABLE + suffix;
+    }
+
+    private Element copy(Element element) {
+        return element instanceof LiteralElement literal ?
+                new LiteralElement(literal.getLiteral(), intType) :
+                newOperand(((Operand) element).getName());
+    }
+
+    private Operand newOperand(String name) {
+        return new Operand(name, intType);
+    }
+
+    private LiteralElement newLiteral(int value) {
+        return new LiteralElement(String.valueOf(value), intType);
+    }
+
+    private Operation newOperation(OperationType opType) {
+        return new Operation(opType, intType);
+    }
+
+    private AssignInstruction newAssign(String dest, Instruction rhs) {
+        return newAssign(dest, intType, rhs);
+    }
+
+    private static AssignInstruction newAssign(String dest, Type type, Instruction rhs) {
+        return new AssignInstruction(new Operand(dest, type), type, rhs);
+    }
+}
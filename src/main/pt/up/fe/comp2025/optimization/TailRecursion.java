@@ -0,0 +1,176 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+
+import java.util.*;
+
+/**
+ * Turns the calls of an OLLIR method to itself on 'this' that are in tail position into jumps to its first instruction.
+ * <p>
+ * A call is in tail position when the only thing left to do after it, following jumps and copies of its result, is to
+ * return that result (or to return, for a void method). The arguments are first copied to new locals and then to the
+ * parameters, so arguments that read other parameters see their values from before the call.
+ */
+public class TailRecursion {
+
+    private static final String THIS = "this";
+    private static final String PREFIX = "tail";
+
+    private final Method method;
+
+    public TailRecursion(Method method) {
+        this.method = method;
+    }
+
+    /**
+     * @return the number of calls replaced by jumps
+     */
+    public int apply() {
+        if (method.isStaticMethod() || method.isConstructMethod() || method.isVarargs()) {
+            return 0;
+        }
+
+        var calls = method.getInstructions().stream().filter(this::isTailCall).toList();
+        if (calls.isEmpty()) {
+            return 0;
+        }
+
+        var prefix = newPrefix();
+        var startLabel = getStartLabel(prefix);
+        var params = method.getParams();
+
+        // One local per parameter holds its new value between the two rounds of copies
+        var varTable = method.getVarTable();
+        int register = varTable.values().stream().mapToInt(Descriptor::getVirtualReg).max().orElse(0) + 1;
+        var temporaries = new ArrayList<String>();
+        for (var param : params) {
+            var name = prefix + ((Operand) param).getName();
+            varTable.put(name, new Descriptor(VarScope.LOCAL, register++, param.getType()));
+            temporaries.add(name);
+        }
+
+        for (var call : calls) {
+            var args = getSelfCall(call).orElseThrow().getArguments();
+
+            var replacement = new ArrayList<Instruction>();
+            var changed = new ArrayList<Integer>();
+            for (int i = 0; i < params.size(); i++) {
+                var param = (Operand) params.get(i);
+                if (args.get(i) instanceof Operand arg && !(arg instanceof ArrayOperand) && arg.getName().equals(param.getName())) {
+                    continue;
+                }
+
+                replacement.add(new AssignInstruction(new Operand(temporaries.get(i), param.getType()), param.getType(),
+                        new SingleOpInstruction(args.get(i))));
+                changed.add(i);
+            }
+            for (int i : changed) {
+                var param = (Operand) params.get(i);
+                replacement.add(new AssignInstruction(new Operand(param.getName(), param.getType()), param.getType(),
+                        new SingleOpInstruction(new Operand(temporaries.get(i), param.getType()))));
+            }
+            replacement.add(new GotoInstruction(startLabel));
+
+            var instructions = method.getInstructions();
+            int index = instructions.indexOf(call);
+            instructions.remove(index);
+            instructions.addAll(index, replacement);
+            method.getLabels().replaceAll((label, target) -> target == call ? replacement.getFirst() : target);
+        }
+
+        return calls.size();
+    }
+
+    private boolean isTailCall(Instruction instruction) {
+        var call = getSelfCall(instruction);
+        if (call.isEmpty()) {
+            return false;
+        }
+
+        // The name that holds the result of the call, or null for a call whose result is not used
+        String result = instruction instanceof AssignInstruction assign && assign.getDest() instanceof Operand dest
+                && !(dest instanceof ArrayOperand) ? dest.getName() : null;
+        if (result == null && !(instruction instanceof CallInstruction)) {
+            return false;
+        }
+
+        var instructions = method.getInstructions();
+        var labels = method.getLabels();
+        int index = instructions.indexOf(instruction) + 1;
+
+        // Bounded by the number of instructions, so a cycle of jumps is not followed forever
+        for (int steps = 0; steps < instructions.size() && index < instructions.size(); steps++) {
+            var next = instructions.get(index);
+            if (next instanceof GotoInstruction gotoInstruction) {
+                index = instructions.indexOf(labels.get(gotoInstruction.getLabel()));
+            } else if (result != null && next instanceof AssignInstruction assign && isCopyOf(assign, result)) {
+                result = ((Operand) assign.getDest()).getName();
+                index++;
+            } else if (next instanceof ReturnInstruction ret) {
+                if (result == null) {
+                    return !ret.hasReturnValue();
+                }
+                return ret.getOperand().orElse(null) instanceof Operand value && !(value instanceof ArrayOperand)
+                        && value.getName().equals(result);
+            } else {
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isCopyOf(AssignInstruction assign, String name) {
+        return assign.getDest() instanceof Operand dest && !(dest instanceof ArrayOperand)
+                && assign.getRhs() instanceof SingleOpInstruction single
+                && single.getSingleOperand() instanceof Operand source && !(source instanceof ArrayOperand)
+                && source.getName().equals(name);
+    }
+
+    private Optional<InvokeVirtualInstruction> getSelfCall(Instruction instruction) {
+        var call = switch (instruction) {
+            case InvokeVirtualInstruction invoke -> invoke;
+            case AssignInstruction assign when assign.getRhs() instanceof InvokeVirtualInstruction invoke -> invoke;
+            default -> null;
+        };
+
+        if (call == null || !(call.getCaller() instanceof Operand caller) || !THIS.equals(caller.getName())
+                || !(call.getMethodName() instanceof LiteralElement name)
+                || !name.getLiteral().equals(method.getMethodName())
+                || call.getArguments().size() != method.getParams().size()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(call);
+    }
+
+    /**
+     * @return a label of the first instruction, which is added if there is none
+     */
+    private String getStartLabel(String prefix) {
+        var first = method.getInstructions().getFirst();
+        for (var entry : method.getLabels().entrySet()) {
+            if (entry.getValue() == first) {
+                return entry.getKey();
+            }
+        }
+
+        var label = prefix + "start";
+        method.getLabels().put(label, first);
+        return label;
+    }
+
+    private String newPrefix() {
+        int suffix = 0;
+        while (hasPrefix(PREFIX + suffix + "_")) {
+            suffix++;
+        }
+        return PREFIX + suffix + "_";
+    }
+
+    private boolean hasPrefix(String prefix) {
+        return method.getVarTable().keySet().stream().anyMatch(name -> name.startsWith(prefix))
+                || method.getLabels().keySet().stream().anyMatch(label -> label.startsWith(prefix));
+    }
+}
@@ -0,0 +1,181 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+import pt.up.fe.comp2025.optimization.ControlFlowGraph.BasicBlock;
+import pt.up.fe.comp2025.optimization.SsaForm.SsaValue;
+
+import java.util.*;
+
+/**
+ * Dominator-based value numbering of an OLLIR method, in SSA form.
+ * <p>
+ * An assignment that computes the same expression of the same values as an assignment in a dominating block (or
+ * earlier in its own block) becomes a copy of the value computed there. Arithmetic, comparisons and array lengths only
+ * depend on their operands and are numbered across the whole dominator tree. Field and array reads also depend on
+ * memory, so they are only reused within a block, or in a successor that can only be reached from it, and never after
+ * a putfield, an array store or a call.
+ */
+public class ValueNumbering {
+
+    private static final String THIS = "this";
+
+    private static final Set<OperationType> COMMUTATIVE = EnumSet.of(OperationType.ADD, OperationType.MUL,
+            OperationType.AND, OperationType.OR, OperationType.XOR, OperationType.EQ, OperationType.NEQ,
+            OperationType.ANDB, OperationType.ORB);
+
+    private final Method method;
+    private SsaForm ssa;
+
+    private int replaced;
+    private int nextMemoryState;
+
+    public ValueNumbering(Method method) {
+        this.method = method;
+    }
+
+    /**
+     * @return the number of assignments replaced by copies
+     */
+    public int apply() {
+        ssa = new SsaForm(method);
+        replaced = 0;
+        nextMemoryState = 0;
+
+        var entry = ssa.getCfg().getEntry();
+        if (entry.isPresent()) {
+            number(entry.get(), new HashMap<>(), nextMemoryState++);
+        }
+
+        // The form is only translated back when something changed, so the method is otherwise left as it was
+        if (replaced > 0) {
+            ssa.destruct();
+        }
+
+        return replaced;
+    }
+
+    private void number(BasicBlock block, Map<String, SsaValue> available, int memoryState) {
+        var added = new ArrayList<String>();
+
+        for (var instruction : List.copyOf(block.getInstructions())) {
+            if (killsMemory(instruction)) {
+                memoryState = nextMemoryState++;
+                continue;
+            }
+
+            if (!(instruction instanceof AssignInstruction assign) || ssa.getDefinition(assign) == null) {
+                continue;
+            }
+
+            var key = getKey(assign.getRhs(), memoryState);
+            if (key == null) {
+                continue;
+            }
+
+            var value = available.get(key);
+            if (value != null) {
+                ssa.replaceWithCopy(assign, value);
+                replaced++;
+            } else {
+                available.put(key, ssa.getDefinition(assign));
+                added.add(key);
+            }
+        }
+
+        for (var child : ssa.getDominatorTree().getChildren(block)) {
+            boolean onlyPredecessor = new HashSet<>(child.getPredecessors()).equals(Set.of(block));
+            number(child, available, onlyPredecessor ? memoryState : nextMemoryState++);
+        }
+
+        added.forEach(available::remove);
+    }
+
+    private static boolean killsMemory(Instruction instruction) {
+        return switch (instruction) {
+            case PutFieldInstruction ignored -> true;
+            case ArrayLengthInstruction ignored -> false;
+            case CallInstruction ignored -> true;
+            case AssignInstruction assign -> assign.getDest() instanceof ArrayOperand || killsMemory(assign.getRhs());
+            default -> false;
+        };
+    }
+
+    /**
+     * @return a key that is the same for expressions that compute the same value, or null if the expression is not
+     * numbered
+     */
+    private String getKey(Instruction rhs, int memoryState) {
+        switch (rhs) {
+            case BinaryOpInstruction binary -> {
+                var left = getKey(binary.getLeftOperand());
+                var right = getKey(binary.getRightOperand());
+                if (left == null || right == null) {
+                    return null;
+                }
+
+                var opType = binary.getOperation().getOpType();
+                if (COMMUTATIVE.contains(opType) && left.compareTo(right) > 0) {
+                    var swap = left;
+                    left = right;
+                    right = swap;
+                }
+                return opType + "(" + left + ", " + right + ")";
+            }
+            case UnaryOpInstruction unary -> {
+                var operand = getKey(unary.getOperand());
+                return operand == null ? null : unary.getOperation().getOpType() + "(" + operand + ")";
+            }
+            case ArrayLengthInstruction arrayLength -> {
+                var array = getKey(arrayLength.getCaller());
+                return array == null ? null : "length(" + array + ")";
+            }
+            case GetFieldInstruction getField -> {
+                if (!(getField.getObject() instanceof Operand object) || !THIS.equals(object.getName())) {
+                    return null;
+                }
+                return "getfield(" + getField.getField().getName() + ")@" + memoryState;
+            }
+            case SingleOpInstruction single when single.getSingleOperand() instanceof ArrayOperand arrayOperand -> {
+                var value = ssa.getValue(arrayOperand);
+                var indexes = arrayOperand.getIndexOperands();
+                var index = indexes.size() == 1 ? getKey(indexes.getFirst()) : null;
+                if (value == null || index == null) {
+                    return null;
+                }
+                return "v" + value.getId() + "[" + index + "]@" + memoryState;
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private String getKey(Element element) {
+        if (element instanceof LiteralElement literal) {
+            return literal.getLiteral() + "." + literal.getType();
+        }
+
+        if (!(element instanceof Operand operand) || element instanceof ArrayOperand) {
+            return null;
+        }
+
+        var value = ssa.getValue(operand);
+        if (value == null) {
+            return null;
+        }
+
+        // A copy has the number of its source, so expressions over a replaced value match the ones over the original
+        while (value.getDefinition() instanceof AssignInstruction copy
+                && copy.getRhs() instanceof SingleOpInstruction single
+                && single.getSingleOperand() instanceof Operand source && !(source instanceof ArrayOperand)) {
+            var sourceValue = ssa.getValue(source);
+            if (sourceValue == null) {
+                break;
+            }
+            value = sourceValue;
+        }
+
+        return "v" + value.getId();
+    }
+}
@@ -1,16 +1,31 @@
 package pt.up.fe.comp2025.parser;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
 import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.ConfigOptions;
 import pt.up.fe.comp2025.JavammLexer;
 import pt.up.fe.comp2025.JavammParser;
+import pt.up.fe.comp2025.ast.CompactAst;
+import pt.up.fe.specs.util.SpecsCheck;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Copyright 2022 SPeCS.
@@ -27,6 +42,36 @@ import java.util.Map;
 
 public class JmmParserImpl implements JmmParser {
 
+    private static final String WARM_UP_CORPUS = "warmup.jmm";
+
+    private record ParserInstances(JavammLexer lexer, JavammParser parser) {
+    }
+
+    // Lexer and parser of each thread, reset for every parse instead of being created again
+    private static final ThreadLocal<ParserInstances> INSTANCES = ThreadLocal.withInitial(() -> {
+        var lexer = new JavammLexer(new ANTLRInputStream(""));
+        return new ParserInstances(lexer, new JavammParser(new CommonTokenStream(lexer)));
+    });
+
+    // The DFA caches are shared by all threads, so they are only cleared when no thread is parsing
+    private static final ReadWriteLock DFA_LOCK = new ReentrantReadWriteLock();
+
+    /**
+     * Parses a bundled program that covers the whole grammar, filling the DFA caches that ANTLR shares between all
+     * lexer and parser instances. Meant to be called once at startup by drivers that compile several files.
+     */
+    public static void warmUp() {
+        try (var corpus = JmmParserImpl.class.getResourceAsStream(WARM_UP_CORPUS)) {
+            SpecsCheck.checkNotNull(corpus, () -> "Could not find warm-up corpus '" + WARM_UP_CORPUS + "'");
+
+            var code = new String(corpus.readAllBytes(), StandardCharsets.UTF_8);
+            var parser = new JmmParserImpl();
+            parser.parse(code, parser.getDefaultRule(), new HashMap<>());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read warm-up corpus", e);
+        }
+    }
+
     @Override
     public String getDefaultRule() {
         return "program";
@@ -34,20 +79,48 @@ public class JmmParserImpl implements JmmParser {
 
     @Override
     public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
+        // Convert code string into a character stream
+        return parse(new ANTLRInputStream(jmmCode), startingRule, config);
+    }
 
+    /**
+     * Parses a source file through a memory-mapped character stream, without reading it into a String.
+     */
+    public JmmParserResult parseFile(File file, Map<String, String> config) {
+        MappedCharStream input;
         try {
-            // Convert code string into a character stream
-            var input = new ANTLRInputStream(jmmCode);
-            // Transform characters into tokens using the lexer
-            var lex = new JavammLexer(input);
-            // Wrap lexer around a token stream
-            var tokens = new CommonTokenStream(lex);
-            // Transforms tokens into a parse tree
-            var parser = new JavammParser(tokens);
+            input = new MappedCharStream(file);
+        } catch (IOException e) {
+            return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Could not read file '" + file + "'", e), config);
+        }
+
+        return parse(input, getDefaultRule(), config);
+    }
 
+    private JmmParserResult parse(CharStream input, String startingRule, Map<String, String> config) {
+
+        try {
+            JmmParserResult r;
+            DFA_LOCK.readLock().lock();
+            try {
+                // Stage 1: SLL prediction, giving up at the first syntax error
+                r = parse(input, startingRule, config, PredictionMode.SLL);
+            } catch (RuntimeException e) {
+                if (!isParseCancellation(e)) {
+                    throw e;
+                }
 
-            // Convert ANTLR CST to JmmNode AST
-            var r = AntlrParser.parse(lex, parser, startingRule, config);
+                // Stage 2: the input has errors or needs full context, reparse with LL and the normal error reporting
+                r = parse(input, startingRule, config, PredictionMode.LL);
+            } finally {
+                DFA_LOCK.readLock().unlock();
+            }
+
+            limitDfaCache(config);
+
+            if (r.getRootNode() != null && ConfigOptions.getCompactAst(config)) {
+                r = new JmmParserResult(CompactAst.compact(r.getRootNode()), r.getReports(), r.getConfig());
+            }
 
             //if (r.getRootNode() != null) {
             //    System.out.println("AST:\n" + r.getRootNode().toTree());
@@ -60,4 +133,75 @@ public class JmmParserImpl implements JmmParser {
             return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Exception during parsing", e), config);
         }
     }
+
+    private JmmParserResult parse(CharStream input, String startingRule, Map<String, String> config, PredictionMode mode) {
+        var instances = INSTANCES.get();
+
+        // Transform characters into tokens using the lexer, from the start of the input even when it is a reparse
+        input.seek(0);
+        var lex = instances.lexer();
+        lex.setInputStream(input);
+        // Wrap lexer around a token stream
+        var tokens = new CommonTokenStream(lex);
+        // Transforms tokens into a parse tree
+        var parser = instances.parser();
+        parser.setTokenStream(tokens);
+        // The state of the previous parse would become the invoking state of the new root context
+        parser.setState(-1);
+
+        parser.getInterpreter().setPredictionMode(mode);
+        parser.setErrorHandler(mode == PredictionMode.SLL ? new BailErrorStrategy() : new DefaultErrorStrategy());
+
+        // Convert ANTLR CST to JmmNode AST
+        return AntlrParser.parse(lex, parser, startingRule, config);
+    }
+
+    /**
+     * Clears the DFA caches when they hold more states than the 'dfaCacheLimit' option allows.
+     */
+    private static void limitDfaCache(Map<String, String> config) {
+        int limit = ConfigOptions.getDfaCacheLimit(config);
+        if (limit < 0) {
+            return;
+        }
+
+        var instances = INSTANCES.get();
+        var lexerSimulator = instances.lexer().getInterpreter();
+        var parserSimulator = instances.parser().getInterpreter();
+
+        if (countStates(lexerSimulator.decisionToDFA) + countStates(parserSimulator.decisionToDFA) <= limit) {
+            return;
+        }
+
+        // Counted again once the other threads are done, since one of them may have cleared the caches meanwhile
+        DFA_LOCK.writeLock().lock();
+        try {
+            if (countStates(lexerSimulator.decisionToDFA) + countStates(parserSimulator.decisionToDFA) > limit) {
+                lexerSimulator.clearDFA();
+                parserSimulator.clearDFA();
+            }
+        } finally {
+            DFA_LOCK.writeLock().unlock();
+        }
+    }
+
+    private static int countStates(DFA[] decisionToDFA) {
+        int states = 0;
+        for (var dfa : decisionToDFA) {
+            states += dfa.states.size();
+        }
+        return states;
+    }
+
+    /**
+     * The rule is invoked through reflection, so the exception thrown by BailErrorStrategy may come wrapped.
+     */
+    private static boolean isParseCancellation(Throwable e) {
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ParseCancellationException) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,76 @@
+package pt.up.fe.comp2025.symboltable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the imports of a compilation unit, built once so that import checks are hash lookups.
+ */
+public class ImportIndex {
+
+    private final List<String> imports;
+    private final Set<String> qualifiedNames;
+    private final Set<String> simpleNames;
+
+    // Simple name -> JVM internal name, only for imports with a package, first import wins
+    private final Map<String, String> internalNames;
+
+    public ImportIndex(List<String> imports) {
+        this.imports = imports;
+        this.qualifiedNames = new HashSet<>(imports);
+        this.simpleNames = new HashSet<>();
+        this.internalNames = new HashMap<>();
+
+        for (var importStmt : imports) {
+            int lastDotIndex = importStmt.lastIndexOf('.');
+            simpleNames.add(importStmt.substring(lastDotIndex + 1));
+
+            if (lastDotIndex != -1) {
+                internalNames.putIfAbsent(importStmt.substring(lastDotIndex + 1), importStmt.replace('.', '/'));
+            }
+        }
+    }
+
+    /**
+     * @return true if the name is an imported class, either by its simple name or by its qualified name
+     */
+    public boolean contains(String name) {
+        if (simpleNames.contains(name) || qualifiedNames.contains(name)) {
+            return true;
+        }
+
+        // A partially qualified name, e.g. 'b.C' for 'a.b.C'
+        if (name.indexOf('.') != -1) {
+            for (var importStmt : imports) {
+                if (importStmt.endsWith("." + name)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the JVM internal name of an imported class (e.g. 'a/b/C' for 'C'), or the given name if it was not imported
+     */
+    public String getInternalName(String className) {
+        var internalName = internalNames.get(className);
+        if (internalName != null) {
+            return internalName;
+        }
+
+        if (className.indexOf('.') != -1) {
+            for (var importStmt : imports) {
+                if (importStmt.endsWith("." + className)) {
+                    return importStmt.replace('.', '/');
+                }
+            }
+        }
+
+        return className;
+    }
+}
@@ -2,11 +2,13 @@ package pt.up.fe.comp2025.symboltable;
 
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2025.ast.TypeAttribution;
 import pt.up.fe.comp2025.ast.TypeUtils;
 import pt.up.fe.specs.util.SpecsCheck;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class JmmSymbolTable extends AJmmSymbolTable {
@@ -19,6 +21,12 @@ public class JmmSymbolTable extends AJmmSymbolTable {
     private final Map<String, Type> returnTypes;
     private final Map<String, List<Symbol>> params;
     private final Map<String, List<Symbol>> locals;
+    private final TypeAttribution typeAttribution;
+    private final ImportIndex importIndex;
+
+    // Name resolution indices, one per method, built on first use
+    private final Map<String, ResolvedSymbol> fieldScope;
+    private final Map<String, Map<String, ResolvedSymbol>> methodScopes;
 
 
     public JmmSymbolTable(List<String> imports, String className, String superClassName,
@@ -35,6 +43,11 @@ public class JmmSymbolTable extends AJmmSymbolTable {
         this.returnTypes = returnTypes;
         this.params = params;
         this.locals = locals;
+        this.typeAttribution = new TypeAttribution();
+        this.importIndex = new ImportIndex(imports);
+        this.fieldScope = new HashMap<>();
+        addToScope(fieldScope, fields, ResolvedSymbol.Scope.FIELD);
+        this.methodScopes = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -79,6 +92,46 @@ public class JmmSymbolTable extends AJmmSymbolTable {
         return locals.get(methodSignature);
     }
 
+    /**
+     * Resolves a variable name as seen from inside the given method: parameters first, then local variables, then
+     * fields. If a name is declared more than once in the same scope, the first declaration is used.
+     *
+     * @return the resolved variable, or an empty Optional if there is no variable with that name
+     */
+    public Optional<ResolvedSymbol> resolve(String methodSignature, String name) {
+        if (methodSignature == null || !params.containsKey(methodSignature)) {
+            return Optional.ofNullable(fieldScope.get(name));
+        }
+
+        var scope = methodScopes.computeIfAbsent(methodSignature, this::buildMethodScope);
+        return Optional.ofNullable(scope.get(name));
+    }
+
+    private Map<String, ResolvedSymbol> buildMethodScope(String methodSignature) {
+        var scope = new HashMap<String, ResolvedSymbol>();
+
+        addToScope(scope, params.get(methodSignature), ResolvedSymbol.Scope.PARAM);
+        addToScope(scope, locals.getOrDefault(methodSignature, List.of()), ResolvedSymbol.Scope.LOCAL);
+        fieldScope.forEach(scope::putIfAbsent);
+
+        return scope;
+    }
+
+    private static void addToScope(Map<String, ResolvedSymbol> scope, List<Symbol> symbols, ResolvedSymbol.Scope kind) {
+        for (int i = 0; i < symbols.size(); i++) {
+            var symbol = symbols.get(i);
+            scope.putIfAbsent(symbol.getName(), new ResolvedSymbol(kind, symbol.getType(), i));
+        }
+    }
+
+    public ImportIndex getImportIndex() {
+        return importIndex;
+    }
+
+    public TypeAttribution getTypeAttribution() {
+        return typeAttribution;
+    }
+
     @Override
     public String toString() {
         return print();
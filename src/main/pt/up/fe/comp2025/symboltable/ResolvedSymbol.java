@@ -0,0 +1,23 @@
+package pt.up.fe.comp2025.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+/**
+ * Result of resolving a variable name inside a method.
+ *
+ * @param scope where the variable is declared
+ * @param type  the declared type of the variable
+ * @param slot  the position of the variable in the declarations of its scope
+ */
+public record ResolvedSymbol(Scope scope, Type type, int slot) {
+
+    public enum Scope {
+        PARAM,
+        LOCAL,
+        FIELD
+    }
+
+    public boolean isField() {
+        return scope == Scope.FIELD;
+    }
+}
@@ -15,6 +15,20 @@ package pt.up.fe.comp.cp1;
 
 import org.junit.Test;
 import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
 
 public class GrammarTest {
 
@@ -252,4 +266,83 @@ public class GrammarTest {
         TestUtils.parseVerbose("[10, 20, 30]", EXPRESSION);
     }
 
+    @Test
+    public void testExprLengthInComparison() {
+        TestUtils.parseVerbose("i < a.length + 1", EXPRESSION);
+
+        // '.length' binds tighter than the binary operators, so this is i < ((a.length) + 1)
+        var root = TestUtils.parse("i < a.length + 1", EXPRESSION).getRootNode();
+        assertEquals("<", root.get("op"));
+        assertEquals("+", root.getChild(1).get("op"));
+        assertEquals("Length", root.getChild(1).getChild(0).getKind());
+    }
+
+    private static final String SYNTAX_ERROR_ON_LINE_4 = """
+            class Foo {
+                public int foo() {
+                    int a;
+                    a = 1 + ;
+                    return a;
+                }
+            }
+            """;
+
+    /**
+     * The lexer and parser of a thread are reused, so nothing of a parse that started at another rule may leak into
+     * the error recovery of the next one.
+     */
+    @Test
+    public void testSyntaxErrorAfterOtherRule() {
+        TestUtils.parseVerbose("1 + 2", EXPRESSION);
+        assertFirstErrorLine(4, TestUtils.parse(SYNTAX_ERROR_ON_LINE_4));
+    }
+
+    /**
+     * With a limit of 0 the shared DFA caches are cleared after every parse, while the other threads are parsing.
+     */
+    @Test
+    public void testParallelParsesWithDfaCacheLimit() throws Exception {
+        var code = SpecsIo.getResource("pt/up/fe/comp/cp2/optimizations/const_prop_fold/PropWithLoop.jmm");
+        var config = new HashMap<String, String>();
+        config.put(ConfigOptions.getDfaCacheLimit(), "0");
+
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var results = new ArrayList<Future<JmmParserResult>>();
+            for (int i = 0; i < 100; i++) {
+                results.add(executor.submit(() -> TestUtils.parse(code, config)));
+            }
+            for (var result : results) {
+                TestUtils.noErrors(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The SLL stage gives up at the syntax error, and the LL stage must lex the input again from its start to report
+     * the error where it is.
+     */
+    @Test
+    public void testSyntaxErrorAfterReparse() {
+        assertFirstErrorLine(4, TestUtils.parse(SYNTAX_ERROR_ON_LINE_4));
+    }
+
+    @Test
+    public void testSyntaxErrorAfterReparseFromFile() throws IOException {
+        var file = File.createTempFile("SyntaxError", ".jmm");
+        file.deleteOnExit();
+        SpecsIo.write(file, SYNTAX_ERROR_ON_LINE_4);
+
+        assertFirstErrorLine(4, new JmmParserImpl().parseFile(file, new HashMap<>()));
+    }
+
+    private static void assertFirstErrorLine(int line, JmmParserResult result) {
+        var error = result.getReports().stream()
+                .filter(report -> report.getType() == ReportType.ERROR)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Expected a syntax error"));
+        assertEquals(error.toString(), line, error.getLine());
+    }
 }
@@ -2,8 +2,15 @@ package pt.up.fe.comp.cp1;
 
 import org.junit.Test;
 import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp2025.ConfigOptions;
 import pt.up.fe.specs.util.SpecsIo;
 
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
 public class SemanticAnalysisTest {
 
     @Test
@@ -467,4 +474,35 @@ public class SemanticAnalysisTest {
                 .analyse(SpecsIo.getResource("pt/up/fe/comp/cp1/semanticanalysis/_UseThisInClassMethodCall.jmm"));
         TestUtils.noErrors(result);
     }
+
+    @Test
+    public void parallelAnalysisSameReports() {
+        var code = SpecsIo.getResource("pt/up/fe/comp/cp1/semanticanalysis/ErrorsInSeveralMethods.jmm");
+        var sequential = TestUtils.analyse(code);
+        var parallel = TestUtils.analyse(code, Map.of(ConfigOptions.getParallelAnalysis(), "true"));
+
+        // Errors of the same pass in different methods are merged in source order
+        TestUtils.mustFail(parallel);
+        assertEquals(4, TestUtils.getNumErrors(parallel.getReports()));
+        assertEquals(toString(sequential), toString(parallel));
+    }
+
+    @Test
+    public void parallelAnalysisNoErrors() {
+        for (var file : List.of("SymbolTable.jmm", "Varargs.jmm", "ObjectAssignmentPassExtends.jmm",
+                "_UseThisInClassMethodCall.jmm")) {
+            var code = SpecsIo.getResource("pt/up/fe/comp/cp1/semanticanalysis/" + file);
+            var parallel = TestUtils.analyse(code, Map.of(ConfigOptions.getParallelAnalysis(), "true"));
+            TestUtils.noErrors(parallel);
+            assertEquals(file, toString(TestUtils.analyse(code)), toString(parallel));
+        }
+    }
+
+    private static String toString(JmmSemanticsResult result) {
+        return result.getReports().stream()
+                .map(report -> report.getType() + "@" + report.getLine() + ":" + report.getColumn() + " "
+                        + report.getMessage())
+                .toList()
+                .toString();
+    }
 }
@@ -14,8 +14,13 @@
 package pt.up.fe.comp.cp2;
 
 import org.junit.Test;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.OperationType;
+import org.specs.comp.ollir.inst.InvokeStaticInstruction;
+import org.specs.comp.ollir.type.BuiltinKind;
 import pt.up.fe.comp.CpUtils;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp2025.ConfigOptions;
 import pt.up.fe.specs.util.SpecsIo;
 
@@ -23,6 +28,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 public class OptimizationsTest {
     private static final String BASE_PATH = "pt/up/fe/comp/cp2/optimizations/";
 
@@ -45,6 +53,14 @@ public class OptimizationsTest {
         return CpUtils.getOllirResult(SpecsIo.getResource(BASE_PATH + filename), config, true);
     }
 
+    static OllirResult getOllirResultCompact(String filename, boolean optimize) {
+        Map<String, String> config = new HashMap<>();
+        config.put(ConfigOptions.getCompactAst(), "true");
+        config.put(ConfigOptions.getOptimize(), Boolean.toString(optimize));
+
+        return CpUtils.getOllirResult(SpecsIo.getResource(BASE_PATH + filename), config, optimize);
+    }
+
     static OllirResult getOllirResultRegalloc(String filename, int maxRegs) {
         Map<String, String> config = new HashMap<>();
         config.put(ConfigOptions.getRegister(), Integer.toString(maxRegs));
@@ -108,6 +124,44 @@ public class OptimizationsTest {
     }
 
 
+    @Test
+    public void regAllocManyMethods() {
+
+        String filename = "reg_alloc/regalloc_many_methods.jmm";
+
+        OllirResult optimized = getOllirResultRegalloc(filename, 0);
+
+        // Methods are allocated in parallel, but reported in the order they are declared
+        var methods = optimized.getOllirClass().getMethods().stream().map(Method::getMethodName).toList();
+        var reported = optimized.getReports().stream()
+                .map(Report::getMessage)
+                .filter(message -> message.startsWith("Register allocation of "))
+                .map(message -> message.substring(message.indexOf('\'') + 1, message.lastIndexOf('\'')))
+                .toList();
+        CpUtils.assertEquals("Expected a report for each method, in declaration order", methods, reported, optimized);
+
+        CpUtils.assertTrue("Expected 'many' to use more registers than 'few'",
+                CpUtils.countRegisters(CpUtils.getMethod(optimized, "many"))
+                        > CpUtils.countRegisters(CpUtils.getMethod(optimized, "few")),
+                optimized);
+    }
+
+    @Test
+    public void regAllocManyMethodsLimit() {
+
+        String filename = "reg_alloc/regalloc_many_methods.jmm";
+
+        // 'few' is the first method that needs more than one register, even if 'many' finishes before it
+        for (int i = 0; i < 10; i++) {
+            try {
+                getOllirResultRegalloc(filename, 1);
+                fail("Expected the allocation with one register to fail");
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage(), e.getMessage().endsWith("2 > 1"));
+            }
+        }
+    }
+
     @Test
     public void constPropSimple() {
 
@@ -204,4 +258,67 @@ public class OptimizationsTest {
         CpUtils.assertFindLiteral("15", method, optimized);
     }
 
+    @Test
+    public void sccpOptimisticLoop() {
+
+        String filename = "sccp/SccpLoop.jmm";
+
+        var optimized = getOllirResultOpt(filename);
+        var method = CpUtils.getMethod(optimized, "run");
+
+        // x is reassigned 0 only on a branch that is never taken, so it is still 5 when the loop comes back
+        CpUtils.assertNumberOfOperations(OperationType.GTH, 0, method, optimized);
+        CpUtils.assertFindLiteral("5", method, optimized);
+
+        CpUtils.assertTrue("Expected the loop on a false variable to be removed",
+                CpUtils.getInstructions(InvokeStaticInstruction.class, method).isEmpty(), optimized);
+    }
+
+    @Test
+    public void typesAfterUnwrappingParentheses() {
+
+        String filename = "types/ParenthesizedCall.jmm";
+
+        var optimized = getOllirResultOpt(filename);
+
+        // The call was typed as a statement while it was inside the parentheses, and now its value is assigned
+        var method = CpUtils.getMethod(optimized, "twice");
+        var call = CpUtils.assertInstExists(InvokeStaticInstruction.class, method, optimized).getFirst();
+        CpUtils.assertEquals("Expected the return type of the call to be int", BuiltinKind.INT32,
+                CpUtils.toBuiltinKind(call.getReturnType()), optimized);
+        CpUtils.assertAssignRhs(InvokeStaticInstruction.class, method, optimized);
+    }
+
+    @Test
+    public void compactAstSameOllir() {
+
+        String filename = "compact_ast/CompactOperators.jmm";
+
+        var original = getOllirResult(filename);
+        var compact = getOllirResultCompact(filename, false);
+
+        CpUtils.assertEquals("Expected the compact AST to generate the same code", original.getOllirCode(),
+                compact.getOllirCode(), compact);
+
+        var optimized = getOllirResultOpt(filename);
+        var compactOptimized = getOllirResultCompact(filename, true);
+
+        CpUtils.assertEquals("Expected the compact AST to generate the same optimized code",
+                optimized.getOllirCode(), compactOptimized.getOllirCode(), compactOptimized);
+    }
+
+    @Test
+    public void compactAstLargeLiteral() {
+
+        String filename = "compact_ast/CompactLargeLiteral.jmm";
+
+        var original = getOllirResult(filename);
+        var compact = getOllirResultCompact(filename, false);
+
+        CpUtils.assertEquals("Expected the compact AST to keep a literal that does not fit in an int",
+                original.getOllirCode(), compact.getOllirCode(), compact);
+        CpUtils.assertTrue("Expected the literal to be written as in the source",
+                compact.getOllirCode().contains("99999999999"), compact);
+    }
+
 }
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2022 SPeCS.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.comp.cp3;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2025.IncrementalCompiler;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalCompilerTest {
+
+    private static final String EDITOR = SpecsIo.getResource("pt/up/fe/comp/cp3/incremental/Editor.jmm");
+
+    private static IncrementalCompiler compile(String code, Map<String, String> config) {
+        var compiler = new IncrementalCompiler(config);
+        compiler.update(code);
+        return compiler;
+    }
+
+    /**
+     * Checks that the compiler produces the same reports and code as a compilation from scratch of the same source.
+     */
+    private static void assertSameAsFull(IncrementalCompiler compiler, String code, Map<String, String> config) {
+        var full = new IncrementalCompiler(config);
+        var reports = full.update(code);
+
+        assertEquals(toString(reports), toString(compiler.getSemanticsResult().getReports()));
+        if (reports.stream().noneMatch(report -> report.getType() == ReportType.ERROR)) {
+            assertEquals(full.toOllir().getOllirCode(), compiler.toOllir().getOllirCode());
+            assertEquals(full.toJasmin().getJasminCode(), compiler.toJasmin().getJasminCode());
+        }
+    }
+
+    private static String toString(List<Report> reports) {
+        return reports.stream()
+                .filter(report -> report.getType() != ReportType.LOG)
+                .map(report -> report.getType() + "@" + report.getLine() + ":" + report.getColumn() + " "
+                        + report.getMessage())
+                .toList()
+                .toString();
+    }
+
+    @Test
+    public void editInsideMethod() {
+        var config = new HashMap<String, String>();
+        var compiler = compile(EDITOR, config);
+        CpUtils.runJasmin(compiler.toJasmin(), "2\n6");
+
+        var edited = EDITOR.replace("return y * 2;", "return y * 5;");
+        compiler.update(edited);
+
+        assertTrue("Expected an edit inside a method body to be compiled incrementally", compiler.wasIncremental());
+        assertSameAsFull(compiler, edited, config);
+        CpUtils.runJasmin(compiler.toJasmin(), "2\n15");
+    }
+
+    @Test
+    public void editThatAddsLines() {
+        var config = new HashMap<String, String>();
+        var compiler = compile(EDITOR, config);
+
+        // The error in 'second' is reported again after the lines added to 'first' move it down
+        var withError = EDITOR.replace("return y * 2;", "return y * true;");
+        compiler.update(withError);
+        assertTrue(compiler.wasIncremental());
+        assertSameAsFull(compiler, withError, config);
+
+        var moved = withError.replace("return x + 1;", "int a;\n        a = x;\n        return a + 1;");
+        var reports = compiler.update(moved);
+        assertTrue(compiler.wasIncremental());
+        assertTrue("Expected the error in 'second' to be kept",
+                reports.stream().anyMatch(report -> report.getType() == ReportType.ERROR));
+        assertSameAsFull(compiler, moved, config);
+
+        var fixed = moved.replace("return y * true;", "return y * 2;");
+        compiler.update(fixed);
+        assertTrue(compiler.wasIncremental());
+        assertSameAsFull(compiler, fixed, config);
+        CpUtils.runJasmin(compiler.toJasmin(), "2\n6");
+    }
+
+    @Test
+    public void signatureChangeRebuilds() {
+        var config = new HashMap<String, String>();
+        var compiler = compile(EDITOR, config);
+
+        var edited = EDITOR.replace("public int second(int y)", "public int second(int y, int z)")
+                .replace("e.second(3)", "e.second(3, 4)");
+        compiler.update(edited);
+
+        assertFalse("Expected a change to a method signature to rebuild everything", compiler.wasIncremental());
+        assertSameAsFull(compiler, edited, config);
+        CpUtils.runJasmin(compiler.toJasmin(), "2\n6");
+    }
+
+    @Test
+    public void editWithOptimizations() {
+        var config = new HashMap<String, String>();
+        config.put("optimize", "true");
+        var compiler = compile(EDITOR, config);
+        CpUtils.runJasmin(compiler.toJasmin(), "2\n6");
+
+        // The AST optimizations must not change the tree that the next edit is patched into
+        var edited = EDITOR.replace("return x + 1;", "return x + 10;");
+        compiler.update(edited);
+
+        assertTrue(compiler.wasIncremental());
+        assertSameAsFull(compiler, edited, config);
+        CpUtils.runJasmin(compiler.toJasmin(), "11\n6");
+    }
+}
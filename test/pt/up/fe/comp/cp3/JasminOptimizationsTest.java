@@ -14,6 +14,19 @@
 package pt.up.fe.comp.cp3;
 
 import org.junit.Test;
+import org.specs.comp.ollir.ArrayOperand;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.OperationType;
+import org.specs.comp.ollir.inst.ArrayLengthInstruction;
+import org.specs.comp.ollir.inst.AssignInstruction;
+import org.specs.comp.ollir.inst.BinaryOpInstruction;
+import org.specs.comp.ollir.inst.GetFieldInstruction;
+import org.specs.comp.ollir.inst.GotoInstruction;
+import org.specs.comp.ollir.inst.Instruction;
+import org.specs.comp.ollir.inst.InvokeStaticInstruction;
+import org.specs.comp.ollir.inst.InvokeVirtualInstruction;
+import org.specs.comp.ollir.inst.SingleOpInstruction;
 import pt.up.fe.comp.CpUtils;
 import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
@@ -21,6 +34,7 @@ import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.specs.util.SpecsIo;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class JasminOptimizationsTest {
@@ -40,6 +54,31 @@ public class JasminOptimizationsTest {
         return TestUtils.backend(SpecsIo.getResource("pt/up/fe/comp/cp3/optimizations/" + filename), config);
     }
 
+    static OllirResult getOllirResultOpt(String filename) {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "true");
+        return TestUtils.optimize(SpecsIo.getResource("pt/up/fe/comp/cp3/optimizations/" + filename), config);
+    }
+
+    static JasminResult getJasminResultOptExtra(String filename) {
+        return getJasminResultOptExtraReg(filename, -1);
+    }
+
+    static JasminResult getJasminResultOptExtraReg(String filename, int numReg) {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "true");
+        config.put("extra", "true");
+        config.put("registerAllocation", String.valueOf(numReg));
+        return TestUtils.backend(SpecsIo.getResource("pt/up/fe/comp/cp3/optimizations/" + filename), config);
+    }
+
+    static OllirResult getOllirResultOptExtra(String filename) {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "true");
+        config.put("extra", "true");
+        return TestUtils.optimize(SpecsIo.getResource("pt/up/fe/comp/cp3/optimizations/" + filename), config);
+    }
+
     static JasminResult getJasminResultReg(String filename, int numReg) {
         Map<String, String> config = new HashMap<>();
         config.put("registerAllocation", String.valueOf(numReg));
@@ -134,15 +173,298 @@ public class JasminOptimizationsTest {
     }
 
     /**
-     * Test if iflt is used when comparing with 0.
+     * Test if 0 < a is tested as a > 0 with ifgt.
      */
     @Test
     public void testLessThan0() {
         String resource = SpecsIo.getResource("pt/up/fe/comp/cp3/extra/LessThan0.jmm");
         JasminResult jasminResult = TestUtils.backend(resource);
-        CpUtils.matches(jasminResult, "(iflt|ifge)");
+        CpUtils.matches(jasminResult, "ifgt");
+        CpUtils.runJasmin(jasminResult, "2");
+    }
+
+    /**
+     * Test if comparisons and arithmetic with a literal 0 on either side compute the right values.
+     */
+    @Test
+    public void testZeroOperands() {
+        String resource = SpecsIo.getResource("pt/up/fe/comp/cp3/extra/ZeroOperands.jmm");
+        JasminResult jasminResult = TestUtils.backend(resource);
+        CpUtils.runJasmin(jasminResult, "12\n22\n21\n327");
+
+        // Constant propagation folds '0 - 1' into the literal -1, which has its own constant instruction
+        jasminResult = TestUtils.backend(resource, Map.of("optimize", "true"));
+        CpUtils.matches(jasminResult, "iconst_m1");
+        CpUtils.runJasmin(jasminResult, "12\n22\n21\n327");
+    }
+
+    /**
+     * Test if constant propagation folds the branches it can decide, but keeps divisions by zero and calls with side
+     * effects that run.
+     */
+    @Test
+    public void sccpBranches() {
+        var filename = "sccp/SccpBranches.jmm";
+        var expected = "42\n21\n-7\n0\n5\n3";
+        CpUtils.runJasmin(getJasminResult(filename), expected);
+        CpUtils.runJasmin(getJasminResultOpt(filename), expected);
+        CpUtils.runJasmin(getJasminResultOptExtra(filename), expected);
+
+        var ollirResult = getOllirResultOpt(filename);
+        var arms = CpUtils.getMethod(ollirResult, "arms");
+        CpUtils.assertFindLiteral("20", arms, ollirResult);
+        CpUtils.assertLiteralCount("99", arms, ollirResult, 0);
+        CpUtils.assertHasOperation(OperationType.DIV, CpUtils.getMethod(ollirResult, "divs"), ollirResult);
+        CpUtils.assertLiteralReturn("0", CpUtils.getMethod(ollirResult, "sc"), ollirResult);
+    }
+
+    /**
+     * Test if dead assignments are removed, except the ones that call methods or that can throw.
+     */
+    @Test
+    public void dceKeepsTraps() {
+        var filename = "dce/DeadStores.jmm";
+        CpUtils.runJasmin(getJasminResultOptExtra(filename), "3\n2\n3");
+
+        var ollirResult = getOllirResultOptExtra(filename);
+        var method = CpUtils.getMethod(ollirResult, "g");
+        CpUtils.assertNumberOfOperations(OperationType.ADD, 0, method, ollirResult);
+        CpUtils.assertNumberOfOperations(OperationType.MUL, 0, method, ollirResult);
+        CpUtils.assertNumberOfOperations(OperationType.LTH, 0, method, ollirResult);
+        CpUtils.assertTrue("Expected 'x' to be removed from the locals", !method.getVarTable().containsKey("x"),
+                ollirResult);
+
+        CpUtils.assertNumberOfOperations(OperationType.DIV, 1, method, ollirResult);
+        CpUtils.assertTrue("Expected the dead array access to be kept",
+                countArrayReads(method) == 1, ollirResult);
+        CpUtils.assertTrue("Expected the dead call to be kept",
+                !CpUtils.getInstructions(InvokeVirtualInstruction.class, method).isEmpty()
+                        || !CpUtils.getInstructions(InvokeStaticInstruction.class, method).isEmpty(),
+                ollirResult);
+    }
+
+    /**
+     * Test if copies are propagated through chains, but not past an assignment to their source.
+     */
+    @Test
+    public void copyPropChains() {
+        var filename = "copy_prop/CopyChains.jmm";
+        CpUtils.runJasmin(getJasminResultOptExtra(filename), "5\n7\n55");
+        CpUtils.runJasmin(getJasminResultOptExtraReg(filename, 0), "5\n7\n55");
+
+        var ollirResult = getOllirResultOptExtra(filename);
+        var chain = CpUtils.getMethod(ollirResult, "chain");
+        var add = CpUtils.getOperationInstances(OperationType.ADD, chain, ollirResult).getFirst();
+        CpUtils.assertEquals("Expected the copies of 'x' to be replaced by 'x'", "x",
+                ((Operand) ((BinaryOpInstruction) add).getLeftOperand()).getName(), ollirResult);
+        CpUtils.assertTrue("Expected the copies 'a' and 'b' to be removed",
+                !chain.getVarTable().containsKey("a") && !chain.getVarTable().containsKey("b"), ollirResult);
 
+        var overwritten = CpUtils.getMethod(ollirResult, "overwritten");
+        add = CpUtils.getOperationInstances(OperationType.ADD, overwritten, ollirResult).getFirst();
+        CpUtils.assertEquals("Expected the copy of 'x' to be kept after 'x' is assigned", "a",
+                ((Operand) ((BinaryOpInstruction) add).getLeftOperand()).getName(), ollirResult);
     }
 
+    /**
+     * Test if repeated expressions and reads are reused, but reads are done again after a putfield, an array store or a
+     * call.
+     */
+    @Test
+    public void gvnMemory() {
+        var filename = "gvn/GvnMemory.jmm";
+        CpUtils.runJasmin(getJasminResultOptExtra(filename), "10\n15\n21\n91\n28");
+        CpUtils.runJasmin(getJasminResultOptExtraReg(filename, 0), "10\n15\n21\n91\n28");
 
+        var ollirResult = getOllirResultOptExtra(filename);
+        var fields = CpUtils.getMethod(ollirResult, "fields");
+        CpUtils.assertEquals("Expected 'f' to be read once before and once after the putfield", 2,
+                CpUtils.getInstructions(GetFieldInstruction.class, fields).size(), ollirResult);
+        CpUtils.assertTrue("Expected 'b' to be replaced by 'a'", !fields.getVarTable().containsKey("b"), ollirResult);
+
+        CpUtils.assertEquals("Expected 'arr[i]' to be read once before and once after the array store", 2,
+                countArrayReads(CpUtils.getMethod(ollirResult, "arrays")), ollirResult);
+        CpUtils.assertEquals("Expected 'arr[i]' to be read once before and once after the call", 2,
+                countArrayReads(CpUtils.getMethod(ollirResult, "calls")), ollirResult);
+
+        CpUtils.assertNumberOfOperations(OperationType.ADD, 2, CpUtils.getMethod(ollirResult, "pure"), ollirResult);
+    }
+
+    /**
+     * Test if arraylength is only moved out of a loop when the array cannot be null, since the loop may not run.
+     */
+    @Test
+    public void licmArrayLength() {
+        var filename = "licm/LengthInLoops.jmm";
+        CpUtils.runJasmin(getJasminResultOptExtra(filename), "0\n15");
+        CpUtils.runJasmin(getJasminResultOptExtraReg(filename, 0), "0\n15");
+
+        var ollirResult = getOllirResultOptExtra(filename);
+        CpUtils.assertTrue("Expected arraylength of the field to stay in the loop of 'nullLoop'",
+                isInLoop(CpUtils.getMethod(ollirResult, "nullLoop"), ArrayLengthInstruction.class), ollirResult);
+        CpUtils.assertTrue("Expected arraylength of the new array to move out of the loop of 'localLoop'",
+                !isInLoop(CpUtils.getMethod(ollirResult, "localLoop"), ArrayLengthInstruction.class), ollirResult);
+    }
+
+    /**
+     * Test if invariant arithmetic and field reads move out of nested loops, but a field read stays in a loop that
+     * writes the field.
+     */
+    @Test
+    public void licmNestedLoops() {
+        var filename = "licm/NestedLoops.jmm";
+        CpUtils.runJasmin(getJasminResultOptExtra(filename), "204\n0\n24\n0");
+        CpUtils.runJasmin(getJasminResultOptExtraReg(filename, 0), "204\n0\n24\n0");
+
+        var ollirResult = getOllirResultOptExtra(filename);
+        var run = CpUtils.getMethod(ollirResult, "run");
+        CpUtils.assertTrue("Expected the read of 'f' to move out of the loops of 'run'",
+                !isInLoop(run, GetFieldInstruction.class), ollirResult);
+        CpUtils.assertTrue("Expected 'k * 2' to move out of the loops of 'run'",
+                !isInLoop(run, BinaryOpInstruction.class), ollirResult);
+
+        var counter = CpUtils.getMethod(ollirResult, "counter");
+        CpUtils.assertTrue("Expected the read of 'f' to stay in the loop of 'counter', which writes 'f'",
+                isInLoop(counter, GetFieldInstruction.class), ollirResult);
+        CpUtils.assertTrue("Expected 'k * 2' to move out of the loop of 'counter'",
+                !isInLoop(counter, BinaryOpInstruction.class), ollirResult);
+    }
+
+    /**
+     * Test if multiplications of induction variables in loops become additions, and unused induction variables are
+     * removed, but divisions by powers of two are kept.
+     */
+    @Test
+    public void strengthReductionInductionVariables() {
+        var filename = "strength_reduction/InductionVariables.jmm";
+        CpUtils.runJasmin(getJasminResultOptExtra(filename), "625\n16\n165\n6\n-1");
+        CpUtils.runJasmin(getJasminResultOptExtraReg(filename, 0), "625\n16\n165\n6\n-1");
+
+        var ollirResult = getOllirResultOptExtra(filename);
+        var run = CpUtils.getMethod(ollirResult, "run");
+        var loops = run.getLabels().keySet().stream().filter(label -> !getLoopInstructions(run, label).isEmpty())
+                .toList();
+        CpUtils.assertEquals("Expected two loops in 'run'", 2, loops.size(), ollirResult);
+        for (var label : loops) {
+            for (var instruction : getLoopInstructions(run, label)) {
+                CpUtils.assertTrue("Expected no multiplications in loop '" + label + "', found " + instruction,
+                        !(instruction instanceof AssignInstruction assign
+                                && assign.getRhs() instanceof BinaryOpInstruction binary
+                                && (binary.getOperation().getOpType() == OperationType.MUL
+                                || binary.getOperation().getOpType() == OperationType.SHL)),
+                        ollirResult);
+            }
+        }
+
+        var count = CpUtils.getMethod(ollirResult, "count");
+        CpUtils.assertNumberOfOperations(OperationType.MUL, 0, count, ollirResult);
+        CpUtils.assertTrue("Expected the unused induction variable 'i' to be removed",
+                !count.getVarTable().containsKey("i"), ollirResult);
+
+        CpUtils.assertHasOperation(OperationType.DIV, CpUtils.getMethod(ollirResult, "half"), ollirResult);
+    }
+
+    /**
+     * Test if methods that assign their parameters and have loops are inlined twice in the same caller, without
+     * changing the arguments of the caller or mixing the labels of both copies.
+     */
+    @Test
+    public void inliningParametersAndLabels() {
+        var filename = "inlining/InlineParams.jmm";
+        CpUtils.runJasmin(getJasminResultOptExtra(filename), "33\n1");
+        CpUtils.runJasmin(getJasminResultOptExtraReg(filename, 0), "33\n1");
+
+        var ollirResult = getOllirResultOptExtra(filename);
+        var run = CpUtils.getMethod(ollirResult, "run");
+        CpUtils.assertTrue("Expected the calls in 'run' to be inlined",
+                CpUtils.getInstructions(InvokeVirtualInstruction.class, run).isEmpty(), ollirResult);
+
+        var loops = run.getLabels().keySet().stream().filter(label -> !getLoopInstructions(run, label).isEmpty())
+                .toList();
+        CpUtils.assertEquals("Expected a loop for each inlined call of 'countDown'", 2, loops.size(), ollirResult);
+
+        CpUtils.assertMethodExists("countDown", ollirResult);
+    }
+
+    /**
+     * Test if a tail call to the same method becomes a jump, so a recursion too deep for the stack completes, while a
+     * call whose result is still used is kept.
+     */
+    @Test
+    public void tailRecursionDeep() {
+        var filename = "tail_recursion/DeepRecursion.jmm";
+        CpUtils.runJasmin(getJasminResultOptExtra(filename), "705082704\n720");
+        CpUtils.runJasmin(getJasminResultOptExtraReg(filename, 0), "705082704\n720");
+
+        var ollirResult = getOllirResultOptExtra(filename);
+        CpUtils.assertTrue("Expected the tail call in 'sumTo' to be removed",
+                CpUtils.getInstructions(InvokeVirtualInstruction.class, CpUtils.getMethod(ollirResult, "sumTo"))
+                        .isEmpty(), ollirResult);
+        CpUtils.assertEquals("Expected the call in 'fact' to be kept, since its result is multiplied", 1,
+                CpUtils.getInstructions(InvokeVirtualInstruction.class, CpUtils.getMethod(ollirResult, "fact"))
+                        .size(), ollirResult);
+    }
+
+    /**
+     * Test if algebraic identities are simplified, but not when that would drop a call, an array access that can throw,
+     * or a division that can divide by zero.
+     */
+    @Test
+    public void simplifierKeepsEffects() {
+        var filename = "simplifier/KeepEffects.jmm";
+        CpUtils.runJasmin(getJasminResultOpt(filename), "-8\n0\n1\n9");
+        CpUtils.runJasmin(getJasminResultOptExtra(filename), "-8\n0\n1\n9");
+
+        var ollirResult = getOllirResultOpt(filename);
+        CpUtils.assertEquals("Expected both calls of 'this.f() - (this.f())' to be kept", 2,
+                CpUtils.getInstructions(InvokeVirtualInstruction.class, CpUtils.getMethod(ollirResult, "calls"))
+                        .size(), ollirResult);
+        CpUtils.assertEquals("Expected the access in 'a[5] * 0' to be kept", 1,
+                countArrayReads(CpUtils.getMethod(ollirResult, "trap")), ollirResult);
+        CpUtils.assertHasOperation(OperationType.DIV, CpUtils.getMethod(ollirResult, "divide"), ollirResult);
+
+        var identities = CpUtils.getMethod(ollirResult, "identities");
+        CpUtils.assertTrue("Expected 'x * 1 + 0 - (x - x)' to be simplified to 'x'",
+                CpUtils.getInstructions(BinaryOpInstruction.class, identities).isEmpty(), ollirResult);
+    }
+
+    /**
+     * @return true if an assignment of the given kind comes after the first label of the method, which in these tests
+     * is the start of the only loop
+     */
+    private static boolean isInLoop(Method method, Class<? extends Instruction> rhs) {
+        var instructions = method.getInstructions();
+        int loopStart = method.getLabels().values().stream().mapToInt(instructions::indexOf).min().orElseThrow();
+        for (int i = 0; i < instructions.size(); i++) {
+            if (instructions.get(i) instanceof AssignInstruction assign && rhs.isInstance(assign.getRhs())) {
+                return i > loopStart;
+            }
+        }
+        throw new AssertionError("No assignment of a " + rhs.getSimpleName() + " in " + method.getMethodName());
+    }
+
+    /**
+     * @return the number of assignments that read an element of an array
+     */
+    private static long countArrayReads(Method method) {
+        return CpUtils.getInstructions(AssignInstruction.class, method).stream()
+                .filter(assign -> assign.getRhs() instanceof SingleOpInstruction single
+                        && single.getSingleOperand() instanceof ArrayOperand)
+                .count();
+    }
+
+    /**
+     * @return the instructions from the given label to the jump back to it, or nothing if the label does not start a
+     * loop
+     */
+    private static List<Instruction> getLoopInstructions(Method method, String label) {
+        var instructions = method.getInstructions();
+        int start = instructions.indexOf(method.getLabels().get(label));
+        for (int i = instructions.size() - 1; i >= start; i--) {
+            if (instructions.get(i) instanceof GotoInstruction jump && jump.getLabel().equals(label)) {
+                return instructions.subList(start, i + 1);
+            }
+        }
+        return List.of();
+    }
 }
@@ -145,6 +145,12 @@ public class JasminTest {
         CpUtils.runJasmin(getJasminResult("control_flow/SimpleWhileStat.ollir"), "Result: 0\nResult: 1\nResult: 2");
     }
 
+    /*checks if a WHILE that exits through a negated condition, as generated from Java--, is well executed */
+    @Test
+    public void section3_ControlFlow_While_Negated() {
+        CpUtils.runJasmin(getJasminResult("control_flow/NegatedWhileStat.ollir"), "Result: 0\nResult: 1\nResult: 2");
+    }
+
     /*checks if the code of a more complex IF ELSE statement (similar a switch statement) is well executed */
     @Test
     public void section3_ControlFlow_Mixed_Switch() {
@@ -166,6 +172,26 @@ public class JasminTest {
 
     }
 
+    /*checks if a class whose methods are generated in parallel is always generated the same, with the methods in
+    declaration order*/
+    @Test
+    public void section4_Calls_Many_Methods() {
+        var jasminResult = getJasminResult("calls/ManyMethods.ollir");
+        CpUtils.runJasmin(jasminResult, "Result: 4\nResult: 8\nResult: 1\nResult: 6");
+
+        var code = jasminResult.getJasminCode();
+        int previous = -1;
+        for (var method : new String[]{"countTo", "max", "between", "sumBelow", "main"}) {
+            int index = code.indexOf(" " + method + "(");
+            assertTrue("Expected method " + method + " after the previous ones", index > previous);
+            previous = index;
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(code, getJasminResult("calls/ManyMethods.ollir").getJasminCode());
+        }
+    }
+
 
     /*checks if an array is correctly initialized*/
     @Test